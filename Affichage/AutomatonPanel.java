@@ -3,7 +3,22 @@ package Affichage;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.QuadCurve2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.VolatileImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
 
 import javax.swing.*;
 
@@ -15,20 +30,58 @@ public class AutomatonPanel extends JPanel {
     private Automaton automaton;
     private State selectedState;
     private State translationState;
+    private Translation selectedTranslation;
     private int offsetX;
     private int offsetY;
     private int mouseX;
     private int mouseY;
+    private final AffineTransform viewport = new AffineTransform();
+    private Point panStart;
+    private boolean lowDetail;
     private JLabel detStatus;
     private JLabel minStatus;
+    private JLabel statsStatus;
+    private JCheckBox statsToggle;
     private JButton detBtn;
     private JButton minBtn;
+    private JButton regexBtn;
+    private JButton cancelBtn;
+    private JProgressBar jobProgress;
+    private SwingWorker<Automaton, Void> job;
+    private LayoutWorker layoutWorker;
+    private JComboBox<LayoutStyle> layoutChoice;
+    private SwingWorker<Boolean, Void> minCheck;
+    private Automaton minCheckTarget;
+    private int minCheckModCount;
+    private final RenderModel renderModel = new RenderModel();
+    private VolatileImage layer;
+    private long layerVersion = -1;
+    private State layerExcluded;
+    private AffineTransform layerViewport;
+    private final Map<Phase, PhaseMetrics> lastPhases = new EnumMap<>(Phase.class);
+    private WordTrace trace;
+    private Automaton traceAutomaton;
+    private Set<State> traceStates = Set.of();
+    private Set<Translation> traceEdges = Set.of();
+    private JPanel traceLine;
+    private JSlider traceSlider;
+    private JLabel traceLabel;
+    private JButton playBtn;
+    private Timer traceTimer;
+    private final MetricsListener statsListener = metrics -> SwingUtilities.invokeLater(() -> showStats(metrics));
     
-    private static final int STATE_RADIUS = 25;
-    private static final int ARROW_SIZE = 10;
+    private static final int STATE_RADIUS = RenderModel.STATE_RADIUS;
+    private static final Color SELECTION_COLOR = new Color(52, 152, 219);
+    private static final Color TRACE_COLOR = new Color(230, 126, 34);
+    private static final int TRACE_DELAY = 500;
+    private static final double MIN_ZOOM = 0.02;
+    private static final double MAX_ZOOM = 8;
+    // Below this zoom states are drawn as dots and edges as one unlabelled path.
+    private static final double DETAIL_ZOOM = 0.5;
 
     public AutomatonPanel(Automaton automaton) {
         this.automaton = automaton;
+        instrument(automaton);
         this.selectedState = null;
         this.translationState = null;
         Point mousePos = MouseInfo.getPointerInfo().getLocation();
@@ -48,21 +101,40 @@ public class AutomatonPanel extends JPanel {
 
             @Override
             public void mousePressed(MouseEvent e) {
-                State s = findState(e.getX(), e.getY());
+                if (job != null || SwingUtilities.isMiddleMouseButton(e)) {
+                    panStart = e.getPoint();
+                    return;
+                }
+                Point p = toWorld(e);
+                State s = findState(p.x, p.y);
+                Translation edge = s == null && translationState == null ? findTranslation(p.x, p.y) : null;
+                if (edge != selectedTranslation) {
+                    selectedTranslation = edge;
+                    repaint();
+                }
+
+                if (SwingUtilities.isRightMouseButton(e) && edge != null) {
+                    JPopupMenu menu = new JPopupMenu();
+                    for (JMenuItem item : translationItems(edge)) {
+                        menu.add(item);
+                    }
+                    menu.show(AutomatonPanel.this, e.getX(), e.getY());
+                    return;
+                }
 
                 if (SwingUtilities.isRightMouseButton(e) && s != null){
                     JPopupMenu menu = new JPopupMenu();
 
                     JMenuItem initialItem = new JMenuItem(s.isInitial() ? "Unset Initial" : "Set Initial");
                     initialItem.addActionListener(a -> {
-                        s.setInitial(!s.isInitial());
+                        automaton.setInitial(s, !s.isInitial());
                         refreshStatus();
                         repaint();
                     });
 
                     JMenuItem acceptingItem = new JMenuItem(s.isAccepting() ? "Unset Accepting" : "Set Accepting");
                     acceptingItem.addActionListener(a -> {
-                        s.setAccepting(!s.isAccepting());
+                        automaton.setAccepting(s, !s.isAccepting());
                         refreshStatus();
                         repaint();
                     });
@@ -70,7 +142,6 @@ public class AutomatonPanel extends JPanel {
                     JMenuItem deleteItem = new JMenuItem("Delete State");
                     deleteItem.addActionListener(a -> {
                         automaton.removeState(s);
-                        automaton.getTranslations().removeIf(t -> t.getFromState() == s || t.getToState() == s);
                         automaton.reorderStates();
                         refreshStatus();
                         repaint();
@@ -85,50 +156,14 @@ public class AutomatonPanel extends JPanel {
                     JMenu deleteTransMenu = new JMenu("Delete Transition to...");
                     boolean hasTransitions = false;
 
-                    for (Translation t : automaton.getTranslations()) {
-                        if (t.getFromState() == s) {
-                            hasTransitions = true;
-                            
-                            JMenu specificTransMenu = new JMenu("to " +t.getToState().getName());
-
-                            JMenuItem deleteAll = new JMenuItem("Delete all (" + t.getSymbol() + ")");
-                            deleteAll.addActionListener(a -> {
-                                automaton.getTranslations().remove(t);
-                                refreshStatus();
-                                repaint();
-                            });
-
-                            JMenuItem deleteOne = new JMenuItem("Delete specific symbol...");
-                            deleteOne.addActionListener(a -> {
-                                JPanel delPanel = new JPanel(new BorderLayout(5, 5));
-                                JTextField delField = new JTextField(10);
-                                JButton delEpsilonBtn = new JButton("ε");
-
-                                delEpsilonBtn.addActionListener(al -> delField.setText("ε"));
-                                delPanel.add(new JLabel("Enter symbol to delete from: " + t.getSymbol()), BorderLayout.NORTH);
-                                delPanel.add(delField, BorderLayout.CENTER);
-                                delPanel.add(delEpsilonBtn, BorderLayout.EAST);
-                                int result = JOptionPane.showConfirmDialog(AutomatonPanel.this, delPanel, "Delete Symbol", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
-                                if (result == JOptionPane.OK_OPTION) {
-                                    String toDelete = delField.getText().trim();
-                                    if (!toDelete.isEmpty()) {
-                                        if (toDelete.equalsIgnoreCase("eps")) {
-                                            toDelete = "ε";
-                                        }
-                                        t.removeSymbol(toDelete);
-                                        if (t.hasNoSymbols()) {
-                                            automaton.getTranslations().remove(t);
-                                        }
-                                        refreshStatus();
-                                        repaint();
-                                    }
-                                }
-                            });
-
-                            specificTransMenu.add(deleteOne);
-                            specificTransMenu.add(deleteAll);
-                            deleteTransMenu.add(specificTransMenu);
+                    for (Translation t : automaton.getOutgoingTranslations(s)) {
+                        hasTransitions = true;
+                        
+                        JMenu specificTransMenu = new JMenu("to " +t.getToState().getName());
+                        for (JMenuItem item : translationItems(t)) {
+                            specificTransMenu.add(item);
                         }
+                        deleteTransMenu.add(specificTransMenu);
                     }
                     
                     deleteTransMenu.setEnabled(hasTransitions);
@@ -179,7 +214,7 @@ public class AutomatonPanel extends JPanel {
                                     } else {
                                         Translation existing = findExistingTranslation(translationState, s);
                                         if (existing != null) {
-                                            existing.addSymbol(cleanedInput);
+                                            automaton.addSymbol(existing, cleanedInput);
                                         } else {
                                             automaton.addTranslation(translationState, s, cleanedInput);
                                         }
@@ -194,13 +229,18 @@ public class AutomatonPanel extends JPanel {
                         } else {
                             selectedState = s;
                             translationState = s;
-                            offsetX = e.getX() - s.getX();
-                            offsetY = e.getY() - s.getY();
+                            stopLayout();
+                            offsetX = p.x - s.getX();
+                            offsetY = p.y - s.getY();
                         }
                     } else {
                         selectedState = null;
                         translationState = null;
+                        if (edge == null) {
+                            panStart = e.getPoint();
+                        }
                     }
+                    repaint();
                 }
 
             }
@@ -210,25 +250,35 @@ public class AutomatonPanel extends JPanel {
                 if (selectedState != null) {
                     translationState = null;
 
-                    selectedState.setX(e.getX() - offsetX);
-                    selectedState.setY(e.getY() - offsetY);
-                    refreshStatus();
+                    Point p = toWorld(e);
+                    selectedState.setX(p.x - offsetX);
+                    selectedState.setY(p.y - offsetY);
+                    renderModel.moved(selectedState, getFontMetrics(getFont()));
+                    repaint();
+                } else if (panStart != null) {
+                    viewport.preConcatenate(AffineTransform.getTranslateInstance(e.getX() - panStart.x, e.getY() - panStart.y));
+                    panStart = e.getPoint();
                     repaint();
                 }
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
-                selectedState = null;
+                panStart = null;
+                if (selectedState != null) {
+                    selectedState = null;
+                    repaint();
+                }
             }
 
             @Override
             public void mouseClicked(MouseEvent e){
-                if (SwingUtilities.isLeftMouseButton(e) && e.getClickCount() == 2) {
-                    State s = findState(e.getX(), e.getY());
+                if (job == null && SwingUtilities.isLeftMouseButton(e) && e.getClickCount() == 2) {
+                    Point p = toWorld(e);
+                    State s = findState(p.x, p.y);
                     if (s == null) {
                         String nextName = automaton.getNextStateName();
-                        automaton.addState(new State(nextName, false, false, e.getX(), e.getY()));
+                        automaton.addState(new State(nextName, false, false, p.x, p.y));
                         refreshStatus();
                         repaint();
                     }
@@ -237,14 +287,29 @@ public class AutomatonPanel extends JPanel {
 
             @Override
             public void mouseMoved(MouseEvent e) {
-                mouseX = e.getX();
-                mouseY = e.getY();
-                refreshStatus();
+                Point p = toWorld(e);
+                mouseX = p.x;
+                mouseY = p.y;
+                if (translationState != null) {
+                    repaint();
+                }
+            }
+
+            // Zooms around the cursor, so the point under it stays put.
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double scale = viewport.getScaleX();
+                double target = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, scale * Math.pow(1.1, -e.getPreciseWheelRotation())));
+                AffineTransform zoom = AffineTransform.getTranslateInstance(e.getX(), e.getY());
+                zoom.scale(target / scale, target / scale);
+                zoom.translate(-e.getX(), -e.getY());
+                viewport.preConcatenate(zoom);
                 repaint();
             }
         };
         addMouseListener(mouseHandler);
         addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
 
         this.setFocusable(true);
     }
@@ -253,123 +318,194 @@ public class AutomatonPanel extends JPanel {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-
-        for (Translation t : automaton.getTranslations()) {
-            drawTranslation(g2, t);
+        applyHints(g2);
+
+        State moving = selectedState;
+        renderModel.sync(automaton, moving, getFontMetrics(getFont()));
+        lowDetail = viewport.getScaleX() < DETAIL_ZOOM;
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
         }
+        Rectangle view = toWorld(clip);
 
-        for (State s : automaton.getStates()) {
-            drawState(g2, s);
+        Graphics2D wg = (Graphics2D) g2.create();
+        wg.transform(viewport);
+        if (!paintStaticLayer(g2, moving)) {
+            drawStatic(wg, moving, view);
         }
 
-        if (translationState != null) {
-            g2.setColor(Color.GRAY);
-            drawArrow(g2, translationState.getX(), translationState.getY(), mouseX, mouseY);
-            g2.setColor(Color.BLACK);
+        if (isTraceCurrent()) {
+            drawTrace(wg, view);
         }
-    }
 
-    private void drawTranslation(Graphics2D g, Translation t) {
-        State from = t.getFromState();
-        State to = t.getToState();
-
-        if (from == to) {
-            int x = from.getX();
-            int y = from.getY();
-            
-            int loopSize = 30;
-            int xPos = x - loopSize / 2;
-            int yPos = y - STATE_RADIUS - loopSize + 5;
-
-            g.setStroke(new BasicStroke(2));
-            g.drawArc(xPos, yPos, loopSize, loopSize, -30, 240);
+        RenderModel.EdgeView picked = selectedTranslation == null ? null : renderModel.viewOf(selectedTranslation);
+        if (picked != null && picked.bounds.intersects(view)) {
+            drawEdge(wg, picked, SELECTION_COLOR);
+        }
 
-            drawArrowHead(g, x + 8, y - STATE_RADIUS, Math.PI / 3);
-            String sym = t.getSymbol();
-            if (sym == null || sym.isEmpty() || sym.equals("eps")) {
-                sym = "ε";
-            } else {
-                sym = sym.replaceAll("\\s+", " ");
-            }
-            drawCenteredString(g, sym, x, yPos - 5);
-        } else {
-            if (hasReverseTransition(from, to)) {
-                drawCurvedArrow(g, from, to, 40);
-                Point labelPos = computeLabelPosition(from, to, 35);
-                drawCenteredString(g, t.getSymbol(), labelPos.x, labelPos.y);
-            } else {
-                drawArrow(g, from.getX(), from.getY(), to.getX(), to.getY());
-                Point labelPos = computeLabelPosition(from, to, 15);
-                drawCenteredString(g, t.getSymbol(), labelPos.x, labelPos.y);
+        if (moving != null) {
+            for (RenderModel.EdgeView e : renderModel.incidentTo(moving)) {
+                if (e.bounds.intersects(view)) {
+                    drawEdge(wg, e, e == picked ? SELECTION_COLOR : Color.BLACK);
+                }
             }
+            drawState(wg, moving);
         }
+
+        if (translationState != null) {
+            wg.setColor(Color.GRAY);
+            drawArrow(wg, translationState.getX(), translationState.getY(), mouseX, mouseY);
+        }
+        wg.dispose();
     }
 
-    private Point computeLabelPosition(State from, State to, int offset) {
-        int mx = (from.getX() + to.getX()) / 2;
-        int my = (from.getY() + to.getY()) / 2;
+    private Point toWorld(MouseEvent e) {
+        double scale = viewport.getScaleX();
+        return new Point((int) Math.round((e.getX() - viewport.getTranslateX()) / scale),
+                (int) Math.round((e.getY() - viewport.getTranslateY()) / scale));
+    }
 
-        int dx = to.getX() - from.getX();
-        int dy = to.getY() - from.getY();
+    private Rectangle toWorld(Rectangle screen) {
+        double scale = viewport.getScaleX();
+        int x = (int) Math.floor((screen.x - viewport.getTranslateX()) / scale);
+        int y = (int) Math.floor((screen.y - viewport.getTranslateY()) / scale);
+        return new Rectangle(x, y, (int) Math.ceil(screen.width / scale) + 1, (int) Math.ceil(screen.height / scale) + 1);
+    }
 
-        double len = Math.sqrt(dx * dx + dy * dy);
-        if (len == 0) {
-            len = 1;
+    // Zooms (never beyond 1:1) and centres the view on all states.
+    private void fitView() {
+        java.util.List<State> states = automaton.getStates();
+        int w = getWidth();
+        int h = getHeight();
+        if (states.isEmpty() || w <= 0 || h <= 0) {
+            return;
+        }
+        Rectangle bounds = new Rectangle(states.get(0).getX(), states.get(0).getY(), 0, 0);
+        for (State s : states) {
+            bounds.add(s.getX(), s.getY());
         }
+        bounds.grow(STATE_RADIUS + 40, STATE_RADIUS + 40);
+        double scale = Math.max(MIN_ZOOM, Math.min(1, Math.min((double) w / bounds.width, (double) h / bounds.height)));
+        viewport.setToTranslation(w / 2.0, h / 2.0);
+        viewport.scale(scale, scale);
+        viewport.translate(-bounds.getCenterX(), -bounds.getCenterY());
+    }
 
-        int ox = (int) (-dy / len * offset);
-        int oy = (int) (dx / len * offset);
+    private static void applyHints(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    }
 
-        return new Point(mx + ox, my + oy);
+    // Everything except the moving state and its edges is drawn into a VolatileImage that is only
+    // redrawn when the render model's version, the moving state or the viewport changes, so a
+    // drag or a rubber-band move costs one blit plus a handful of shapes. Returns false when no accelerated
+    // image is available and the caller should draw directly.
+    private boolean paintStaticLayer(Graphics2D g, State moving) {
+        int w = getWidth();
+        int h = getHeight();
+        if (w <= 0 || h <= 0) {
+            return true;
+        }
+        AffineTransform device = g.getTransform();
+        int pw = (int) Math.ceil(w * device.getScaleX());
+        int ph = (int) Math.ceil(h * device.getScaleY());
+        do {
+            int status = VolatileImage.IMAGE_INCOMPATIBLE;
+            if (layer != null && layer.getWidth() == pw && layer.getHeight() == ph) {
+                status = layer.validate(getGraphicsConfiguration());
+            }
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                layer = createVolatileImage(pw, ph);
+                if (layer == null) {
+                    return false;
+                }
+            }
+            if (status != VolatileImage.IMAGE_OK || layerVersion != renderModel.getVersion() || layerExcluded != moving
+                    || !viewport.equals(layerViewport)) {
+                Graphics2D lg = layer.createGraphics();
+                lg.setColor(getBackground());
+                lg.fillRect(0, 0, pw, ph);
+                lg.scale(device.getScaleX(), device.getScaleY());
+                lg.transform(viewport);
+                applyHints(lg);
+                drawStatic(lg, moving, toWorld(new Rectangle(0, 0, w, h)));
+                lg.dispose();
+                layerVersion = renderModel.getVersion();
+                layerExcluded = moving;
+                layerViewport = new AffineTransform(viewport);
+            }
+            g.drawImage(layer, 0, 0, w, h, null);
+        } while (layer.contentsLost());
+        return true;
     }
 
-    private boolean hasReverseTransition(State from, State to) {
-        if (from == null || to == null) {
-            return false;
+    private void drawStatic(Graphics2D g, State excluded, Rectangle view) {
+        if (lowDetail) {
+            drawStaticOutline(g, excluded, view);
+            return;
+        }
+        for (RenderModel.EdgeView e : renderModel.getEdges()) {
+            if (e.from != excluded && e.to != excluded && e.bounds.intersects(view)) {
+                drawEdge(g, e, Color.BLACK);
+            }
         }
-        for (Translation t : automaton.getTranslations()) {
-            if (t.getFromState() == to && t.getToState() == from) {
-                return true;
+        Rectangle circle = new Rectangle();
+        for (State s : automaton.getStates()) {
+            circle.setBounds(s.getX() - STATE_RADIUS - 40, s.getY() - STATE_RADIUS, 2 * STATE_RADIUS + 43, 2 * STATE_RADIUS + 3);
+            if (s != excluded && circle.intersects(view)) {
+                drawState(g, s);
             }
         }
-        return false;
     }
 
-    private void drawCurvedArrow(Graphics2D g, State from, State to, int curvature) {
-        int dx = to.getX() - from.getX();
-        int dy = to.getY() - from.getY();
+    // Low zoom: all visible edges go into one path and states into two (plain and accepting), so
+    // a frame is three draw calls whatever the size of the automaton.
+    private void drawStaticOutline(Graphics2D g, State excluded, Rectangle view) {
+        Path2D edges = new Path2D.Float();
+        for (RenderModel.EdgeView e : renderModel.getEdges()) {
+            if (e.line != null && e.from != excluded && e.to != excluded && e.bounds.intersects(view)) {
+                edges.append(e.line, false);
+            }
+        }
+        Path2D plain = new Path2D.Float();
+        Path2D accepting = new Path2D.Float();
+        for (State s : automaton.getStates()) {
+            int x = s.getX();
+            int y = s.getY();
+            if (s != excluded && view.intersects(x - STATE_RADIUS, y - STATE_RADIUS, 2 * STATE_RADIUS, 2 * STATE_RADIUS)) {
+                (s.isAccepting() ? accepting : plain).append(new Ellipse2D.Float(x - STATE_RADIUS, y - STATE_RADIUS, 2 * STATE_RADIUS, 2 * STATE_RADIUS), false);
+            }
+        }
+        g.setStroke(new BasicStroke((float) (1 / viewport.getScaleX())));
+        g.setColor(Color.GRAY);
+        g.draw(edges);
+        g.setColor(new Color(44, 62, 80));
+        g.fill(plain);
+        g.setColor(new Color(39, 174, 96));
+        g.fill(accepting);
+    }
 
-        double len = Math.sqrt(dx * dx + dy * dy);
-        if (len == 0) {
+    private void drawEdge(Graphics2D g, RenderModel.EdgeView e, Color color) {
+        g.setColor(color);
+        if (lowDetail) {
+            if (e.line != null) {
+                g.setStroke(new BasicStroke((float) (2 / viewport.getScaleX())));
+                g.draw(e.line);
+            }
             return;
         }
-
-        double nx = -dy / len;
-        double ny = dx / len;
-
-        int controlX = (from.getX() + to.getX()) / 2 + (int) (nx * curvature);
-        int controlY = (from.getY() + to.getY()) / 2 + (int) (ny * curvature);
-
-        double tdx = to.getX() - controlX;
-        double tdy = to.getY() - controlY;
-        double tlen = Math.sqrt(tdx * tdx + tdy * tdy);
-
-        int endX = (int) (to.getX() - tdx / tlen * STATE_RADIUS);
-        int endY = (int) (to.getY() - tdy / tlen * STATE_RADIUS);
-
-        QuadCurve2D curve = new QuadCurve2D.Float();
-        curve.setCurve(from.getX(), from.getY(), controlX, controlY, endX, endY);
-
-        g.setStroke(new BasicStroke(2));
-        g.draw(curve);
-
-        drawArrowHead(g, endX, endY, Math.atan2(tdy, tdx));
+        g.setFont(getFont());
+        if (e.line != null) {
+            g.setStroke(new BasicStroke(color == Color.BLACK ? 2 : 3));
+            g.draw(e.line);
+            g.fill(e.head);
+        }
+        drawCenteredString(g, e.getLabel(), e.labelX, e.labelY, color);
     }
 
-    private void drawCenteredString(Graphics2D g, String str, int x, int y) {
+    private void drawCenteredString(Graphics2D g, String str, int x, int y, Color color) {
         FontMetrics fm = g.getFontMetrics();
         int textWidth = fm.stringWidth(str);
         int textHeight = fm.getHeight();
@@ -377,7 +513,7 @@ public class AutomatonPanel extends JPanel {
         g.setColor(new Color(255, 255, 255, 200));
         g.fillRoundRect(x - textWidth / 2 - 2, y - textHeight / 2 - 2, textWidth + 4, textHeight, 5, 5);
 
-        g.setColor(Color.BLACK);
+        g.setColor(color);
         g.drawString(str, x - textWidth / 2, y + textHeight / 4);
     }
 
@@ -385,6 +521,12 @@ public class AutomatonPanel extends JPanel {
         int x = s.getX() - STATE_RADIUS;
         int y = s.getY() - STATE_RADIUS;
 
+        if (lowDetail) {
+            g.setColor(s == selectedState ? SELECTION_COLOR : s.isAccepting() ? new Color(39, 174, 96) : new Color(44, 62, 80));
+            g.fillOval(x, y, STATE_RADIUS * 2, STATE_RADIUS * 2);
+            return;
+        }
+
         g.setColor(new Color(0, 0, 0, 30));
         g.fillOval(x + 3, y + 3, STATE_RADIUS * 2, STATE_RADIUS * 2);
 
@@ -393,7 +535,7 @@ public class AutomatonPanel extends JPanel {
         g.fillOval(x, y, STATE_RADIUS * 2, STATE_RADIUS * 2);
 
         if(s == selectedState) {
-            g.setColor(new Color(52, 152, 219));
+            g.setColor(SELECTION_COLOR);
             g.setStroke(new BasicStroke(3));
         } else {
             g.setColor(new Color(44, 62, 80));
@@ -417,15 +559,39 @@ public class AutomatonPanel extends JPanel {
         g.drawString(s.getName(), textWidth, textHeight);
     }
 
-    private State findState(int x, int y) {
-        for (State s : automaton.getStates()) {
-            int dx = s.getX() - x;
-            int dy = s.getY() - y;
-            if (dx * dx + dy * dy <= STATE_RADIUS * STATE_RADIUS) {
-                return s;
+    // Drawn over the static layer, so moving through a trace never invalidates the cached picture.
+    private void drawTrace(Graphics2D g, Rectangle view) {
+        for (Translation t : traceEdges) {
+            RenderModel.EdgeView e = renderModel.viewOf(t);
+            if (e != null && e.from != selectedState && e.to != selectedState && e.bounds.intersects(view)) {
+                drawEdge(g, e, TRACE_COLOR);
             }
         }
-        return null;
+        g.setColor(TRACE_COLOR);
+        g.setStroke(new BasicStroke(4));
+        for (State s : traceStates) {
+            int x = s.getX() - STATE_RADIUS;
+            int y = s.getY() - STATE_RADIUS;
+            if (s == selectedState || !view.intersects(x, y, 2 * STATE_RADIUS, 2 * STATE_RADIUS)) {
+                continue;
+            }
+            if (lowDetail) {
+                g.fillOval(x, y, STATE_RADIUS * 2, STATE_RADIUS * 2);
+            } else {
+                g.drawOval(x, y, STATE_RADIUS * 2, STATE_RADIUS * 2);
+            }
+        }
+    }
+
+    private State findState(int x, int y) {
+        renderModel.ensure(automaton, getFontMetrics(getFont()));
+        return renderModel.stateAt(x, y);
+    }
+
+    private Translation findTranslation(int x, int y) {
+        renderModel.ensure(automaton, getFontMetrics(getFont()));
+        RenderModel.EdgeView view = renderModel.edgeAt(x, y);
+        return view == null ? null : view.translation;
     }
 
     private void drawArrow(Graphics2D g, int x1, int y1, int x2, int y2) {
@@ -452,22 +618,47 @@ public class AutomatonPanel extends JPanel {
     }
     
     private void drawArrowHead(Graphics2D g, int x, int y, double angle) {
-        AffineTransform old = g.getTransform();
-        g.translate(x, y);
-        g.rotate(angle);
-
-        Polygon arrowHead = new Polygon();
-        arrowHead.addPoint(0, 0);
-        arrowHead.addPoint(-ARROW_SIZE, -ARROW_SIZE / 2);
-        arrowHead.addPoint(-ARROW_SIZE, ARROW_SIZE / 2);
-        
-        g.fill(arrowHead);
-        g.setTransform(old);
+        g.fill(RenderModel.arrowHead(x, y, angle));
+    }
+
+    private java.util.List<JMenuItem> translationItems(Translation t) {
+        JMenuItem deleteAll = new JMenuItem("Delete all (" + t.getSymbol() + ")");
+        deleteAll.addActionListener(a -> {
+            automaton.removeTranslation(t);
+            refreshStatus();
+            repaint();
+        });
+
+        JMenuItem deleteOne = new JMenuItem("Delete specific symbol...");
+        deleteOne.addActionListener(a -> {
+            JPanel delPanel = new JPanel(new BorderLayout(5, 5));
+            JTextField delField = new JTextField(10);
+            JButton delEpsilonBtn = new JButton("ε");
+
+            delEpsilonBtn.addActionListener(al -> delField.setText("ε"));
+            delPanel.add(new JLabel("Enter symbol to delete from: " + t.getSymbol()), BorderLayout.NORTH);
+            delPanel.add(delField, BorderLayout.CENTER);
+            delPanel.add(delEpsilonBtn, BorderLayout.EAST);
+            int result = JOptionPane.showConfirmDialog(AutomatonPanel.this, delPanel, "Delete Symbol", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            if (result == JOptionPane.OK_OPTION) {
+                String toDelete = delField.getText().trim();
+                if (!toDelete.isEmpty()) {
+                    if (toDelete.equalsIgnoreCase("eps")) {
+                        toDelete = "ε";
+                    }
+                    automaton.removeSymbol(t, toDelete);
+                    refreshStatus();
+                    repaint();
+                }
+            }
+        });
+
+        return java.util.List.of(deleteOne, deleteAll);
     }
 
     private Translation findExistingTranslation(State from, State to) {
-        for (Translation t : automaton.getTranslations()) {
-            if (t.getFromState() == from && t.getToState() == to) {
+        for (Translation t : automaton.getOutgoingTranslations(from)) {
+            if (t.getToState() == to) {
                 return t;
             }
         }
@@ -494,8 +685,7 @@ public class AutomatonPanel extends JPanel {
         resLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
 
         testButton.addActionListener(e -> {
-            String word = wordInput.getText().trim();
-            if (word.equals("ε") || word.equalsIgnoreCase("eps")) word = "";
+            String word = normalizeWord(wordInput.getText());
             boolean accepted = automaton.accepts(word);
             if (accepted) {
                 resLabel.setText("✅ ACCEPTED");
@@ -508,11 +698,139 @@ public class AutomatonPanel extends JPanel {
             repaint();
         });
 
+        JButton traceButton = new JButton("Trace");
+        traceButton.addActionListener(e -> {
+            if (automaton.getStates().isEmpty()) {
+                return;
+            }
+            String word = normalizeWord(wordInput.getText());
+            trace = automaton.trace(word);
+            traceAutomaton = automaton;
+            if (trace.isAccepted()) {
+                resLabel.setText("✅ ACCEPTED");
+                resLabel.setBackground(new Color(200, 255, 200));
+            } else {
+                resLabel.setText("❌ REJECTED");
+                resLabel.setBackground(new Color(255, 200, 200));
+            }
+            traceSlider.setMaximum(trace.getStepCount() - 1);
+            traceSlider.setValue(0);
+            showTraceStep(0);
+            traceLine.setVisible(true);
+            revalidate();
+            traceTimer.restart();
+            playBtn.setText("⏸");
+        });
+
+        JButton fileButton = new JButton("Test file…");
+        JProgressBar batchProgress = new JProgressBar(0, 100);
+        batchProgress.setStringPainted(true);
+        batchProgress.setVisible(false);
+
+        fileButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            Path file = chooser.getSelectedFile().toPath();
+            // Building the matcher (DFA table or NFA masks) can take a while, so it happens on the
+            // worker, from a copy that later edits cannot touch.
+            Automaton snapshot = automaton.copy();
+            fileButton.setEnabled(false);
+            batchProgress.setValue(0);
+            batchProgress.setVisible(true);
+            revalidate();
+
+            SwingWorker<BatchResult, Void> worker = new SwingWorker<>() {
+                @Override
+                protected BatchResult doInBackground() throws IOException {
+                    java.util.List<String> words;
+                    try (Stream<String> lines = Files.lines(file)) {
+                        words = lines.map(AutomatonPanel::normalizeWord).toList();
+                    } catch (UncheckedIOException ex) {
+                        throw ex.getCause();
+                    }
+                    long total = Math.max(1, words.size());
+                    return BatchResult.evaluate(snapshot.matcher(), words, done -> setProgress((int) (done * 100 / total)));
+                }
+
+                @Override
+                protected void done() {
+                    fileButton.setEnabled(true);
+                    batchProgress.setVisible(false);
+                    revalidate();
+                    try {
+                        BatchResult result = get();
+                        resLabel.setText("✅ " + result.getAcceptedCount() + "  ❌ " + result.getRejectedCount());
+                        resLabel.setBackground(new Color(245, 245, 245));
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ex) {
+                        JOptionPane.showMessageDialog(AutomatonPanel.this, ex.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            };
+            worker.addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName())) {
+                    batchProgress.setValue((Integer) evt.getNewValue());
+                }
+            });
+            worker.execute();
+        });
+
         testLine.add(new JLabel("Word:"));
         testLine.add(wordInput);
         testLine.add(testButton);
+        testLine.add(traceButton);
+        testLine.add(fileButton);
+        testLine.add(batchProgress);
         testLine.add(resLabel);
 
+        traceLine = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
+        traceLine.setOpaque(false);
+        traceLine.setVisible(false);
+
+        traceSlider = new JSlider(0, 0, 0);
+        traceSlider.setOpaque(false);
+        traceSlider.addChangeListener(e -> showTraceStep(traceSlider.getValue()));
+
+        traceLabel = new JLabel();
+        traceLabel.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        traceLabel.setOpaque(true);
+        traceLabel.setBackground(new Color(245, 245, 245));
+        traceLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+
+        traceTimer = new Timer(TRACE_DELAY, e -> {
+            if (traceSlider.getValue() < traceSlider.getMaximum()) {
+                traceSlider.setValue(traceSlider.getValue() + 1);
+            } else {
+                traceTimer.stop();
+                playBtn.setText("▶");
+            }
+        });
+
+        playBtn = new JButton("▶");
+        playBtn.addActionListener(e -> {
+            if (traceTimer.isRunning()) {
+                traceTimer.stop();
+                playBtn.setText("▶");
+                return;
+            }
+            if (traceSlider.getValue() == traceSlider.getMaximum()) {
+                traceSlider.setValue(0);
+            }
+            traceTimer.restart();
+            playBtn.setText("⏸");
+        });
+
+        JButton closeTraceBtn = new JButton("✕");
+        closeTraceBtn.addActionListener(e -> clearTrace());
+
+        traceLine.add(traceLabel);
+        traceLine.add(playBtn);
+        traceLine.add(traceSlider);
+        traceLine.add(closeTraceBtn);
+
         JPanel algoLine = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
         algoLine.setOpaque(false);
 
@@ -530,28 +848,59 @@ public class AutomatonPanel extends JPanel {
         minStatus.setBackground(new Color(245, 245, 245));
         minStatus.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
 
-        detBtn.addActionListener(e -> {
-            automaton.determinize();
-            layoutStatesInCircle(automaton.getStates());
-            refreshStatus();
-            repaint();
+        jobProgress = new JProgressBar();
+        jobProgress.setIndeterminate(true);
+        jobProgress.setVisible(false);
+        cancelBtn = new JButton("Cancel");
+        cancelBtn.setVisible(false);
+        cancelBtn.addActionListener(e -> {
+            if (job != null) {
+                job.cancel(true);
+            }
         });
 
-        minBtn.addActionListener(e -> {
-            automaton.minimize();
-            layoutStatesInCircle(automaton.getStates());
-            refreshStatus();
-            repaint();
-        });
+        detBtn.addActionListener(e -> runJob(automaton.copy(), a -> {
+            a.determinize();
+            return a;
+        }));
+
+        minBtn.addActionListener(e -> runJob(automaton.copy(), a -> {
+            a.minimize();
+            return a;
+        }));
 
         algoLine.add(detStatus);
         algoLine.add(detBtn);
         algoLine.add(new JLabel("  "));
         algoLine.add(minStatus);
         algoLine.add(minBtn);
+        algoLine.add(jobProgress);
+        algoLine.add(cancelBtn);
+
+        JPanel statsLine = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
+        statsLine.setOpaque(false);
+
+        statsStatus = new JLabel();
+        statsStatus.setFont(new Font("Monospaced", Font.PLAIN, 11));
+        statsStatus.setOpaque(true);
+        statsStatus.setBackground(new Color(245, 245, 245));
+        statsStatus.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        statsStatus.setVisible(false);
+
+        statsToggle = new JCheckBox("Stats");
+        statsToggle.setOpaque(false);
+        statsToggle.addActionListener(e -> {
+            statsStatus.setVisible(statsToggle.isSelected() && !lastPhases.isEmpty());
+            revalidate();
+        });
+        algoLine.add(statsToggle);
+
+        statsLine.add(statsStatus);
 
         verticalStack.add(testLine);
+        verticalStack.add(traceLine);
         verticalStack.add(algoLine);
+        verticalStack.add(statsLine);
         
         JPanel glassPanel = new JPanel(new BorderLayout());
         glassPanel.setBackground(new Color(255, 255, 255, 200));
@@ -562,6 +911,49 @@ public class AutomatonPanel extends JPanel {
         this.add(rightContainer, BorderLayout.NORTH);
     }
 
+    private boolean isTraceCurrent() {
+        return trace != null && traceAutomaton == automaton && trace.isCurrent();
+    }
+
+    // Reads the recorded step; scrubbing never runs the automaton again.
+    private void showTraceStep(int step) {
+        if (!isTraceCurrent()) {
+            clearTrace();
+            return;
+        }
+        traceStates = new HashSet<>(trace.getActiveStates(step));
+        traceEdges = new HashSet<>(trace.getTakenTranslations(step));
+        String input = trace.getInput();
+        int from = Math.max(0, step - 12);
+        int to = Math.min(input.length(), step + 12);
+        String window = (from > 0 ? "…" : "") + input.substring(from, step) + "▸" + input.substring(step, to)
+                + (to < input.length() ? "…" : "");
+        String state = step > trace.getLastLiveStep() ? "no active state"
+                : traceStates.size() + (traceStates.size() == 1 ? " active state" : " active states");
+        traceLabel.setText(window + "   " + step + "/" + input.length() + "   " + state);
+        repaint();
+    }
+
+    private void clearTrace() {
+        if (traceTimer != null) {
+            traceTimer.stop();
+        }
+        trace = null;
+        traceAutomaton = null;
+        traceStates = Set.of();
+        traceEdges = Set.of();
+        if (traceLine != null) {
+            traceLine.setVisible(false);
+            revalidate();
+        }
+        repaint();
+    }
+
+    private static String normalizeWord(String word) {
+        word = word.trim();
+        return word.equals("ε") || word.equalsIgnoreCase("eps") ? "" : word;
+    }
+
     private void setupRegexBar() {
         JPanel regexBar = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 10));
         regexBar.setOpaque(false);
@@ -569,69 +961,275 @@ public class AutomatonPanel extends JPanel {
         JTextField regexInput = new JTextField(12);
         regexInput.setFont(new Font("SansSerif", Font.PLAIN, 14));
 
-        JButton regexButton = new JButton("From Regex");
+        regexBtn = new JButton("From Regex");
 
-        regexButton.addActionListener(e -> {
+        regexBtn.addActionListener(e -> {
             String regex = regexInput.getText().trim();
-            if (!regex.isEmpty()) {
-                String postfix = Parser.shuntingYard(regex);
-                Automaton a = Thompson.build(postfix);
-                a.removeEpsilonTransitions();
-                a.reorderStates();
-                automaton.removeAllStates();
-                automaton.removeAllTranslations();
-                layoutStatesInCircle(a.getStates());
-                automaton.addState(a.getStates());
-                automaton.addTranslation(a.getTranslations());
-                automaton.reorderStates();
+            if (regex.isEmpty()) {
+                return;
+            }
+            Node ast;
+            try {
+                ast = Parser.parse(regex);
+            } catch (PatternSyntaxException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            MatchEngine engine = automaton.getEngine();
+            runJob(null, ignored -> {
+                Automaton a = Glushkov.build(ast);
+                a.setEngine(engine);
+                return a;
+            });
+        });
+
+        JButton saveBtn = new JButton("Save…");
+        saveBtn.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            try {
+                AutomatonFile.write(automaton, chooser.getSelectedFile().toPath());
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
-            refreshStatus();
-            this.repaint();
         });
 
+        JButton openBtn = new JButton("Open…");
+        openBtn.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            Path file = chooser.getSelectedFile().toPath();
+            MatchEngine engine = automaton.getEngine();
+            runJob(null, ignored -> {
+                try {
+                    Automaton a = AutomatonFile.read(file);
+                    a.setEngine(engine);
+                    return a;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        });
+
+        layoutChoice = new JComboBox<>(LayoutStyle.values());
+        JButton arrangeBtn = new JButton("Arrange");
+        arrangeBtn.addActionListener(e -> arrange(true));
+
         JPanel glassPanel = new JPanel();
         glassPanel.setBackground(new Color(255, 255, 255, 200));
         glassPanel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200)));
         glassPanel.add(new JLabel("Regex:"));
         glassPanel.add(regexInput);
-        glassPanel.add(regexButton);
+        glassPanel.add(regexBtn);
+        glassPanel.add(saveBtn);
+        glassPanel.add(openBtn);
+        glassPanel.add(layoutChoice);
+        glassPanel.add(arrangeBtn);
 
         regexBar.add(glassPanel);
         
         this.add(regexBar, BorderLayout.SOUTH);
     }
 
-    private void layoutStatesInCircle(java.util.List<State> states) {
-        if (states.isEmpty()) {
+    // Places the states at once, so a fresh automaton is never shown piled up at the origin;
+    // arrange() then animates it into the chosen layout.
+    private void layoutStatesInCircle(Automaton a) {
+        java.util.List<State> states = a.getStates();
+        int w = getWidth() > 0 ? getWidth() : 800;
+        int h = getHeight() > 0 ? getHeight() : 600;
+        double[] x = new double[states.size()];
+        double[] y = new double[states.size()];
+        new CircleLayout(new LayoutGraph(a), w / 2.0, h / 2.0, Math.min(w, h) / 3.0).step(x, y);
+        for (int i = 0; i < states.size(); i++) {
+            states.get(i).setX((int) Math.round(x[i]));
+            states.get(i).setY((int) Math.round(y[i]));
+        }
+    }
+
+    // Lays the current automaton out with the chosen style on a background thread, centred on the
+    // visible area, animating the states as it converges.
+    private void arrange(boolean fit) {
+        stopLayout();
+        if (automaton.getStates().isEmpty()) {
             return;
         }
-        
         int w = getWidth() > 0 ? getWidth() : 800;
         int h = getHeight() > 0 ? getHeight() : 600;
+        Rectangle view = toWorld(new Rectangle(0, 0, w, h));
+        LayoutStyle style = (LayoutStyle) layoutChoice.getSelectedItem();
+        GraphLayout layout = style.create(new LayoutGraph(automaton), automaton.isDeterministic(),
+                view.getCenterX(), view.getCenterY(), Math.min(view.width, view.height) / 3.0);
+        layoutWorker = new LayoutWorker(automaton.getStates(), layout, this::repaint, () -> {
+            layoutWorker = null;
+            if (fit) {
+                fitView();
+            }
+            repaint();
+        });
+        layoutWorker.execute();
+    }
 
-        int centerX = w / 2;
-        int centerY = h / 2;
-        int radius = Math.min(w, h) / 3;
+    private void stopLayout() {
+        if (layoutWorker != null) {
+            layoutWorker.cancel(true);
+            layoutWorker = null;
+        }
+    }
 
-        for (int i = 0; i < states.size(); i++) {
-            double angle = 2 * Math.PI * i / states.size();
-            int x = (int) (centerX + radius * Math.cos(angle));
-            int y = (int) (centerY + radius * Math.sin(angle));
-            states.get(i).setX(x);
-            states.get(i).setY(y);
-        } 
+    // Runs work on a background thread against a snapshot (null when the job builds its own
+    // automaton) and swaps the result in on the EDT, so the panel never sees a half-built automaton.
+    private void runJob(Automaton snapshot, UnaryOperator<Automaton> work) {
+        if (job != null) {
+            return;
+        }
+        stopLayout();
+        job = new SwingWorker<>() {
+            @Override
+            protected Automaton doInBackground() {
+                Automaton result = work.apply(snapshot);
+                // Minimize already records its answer; other jobs get the check here, off the EDT.
+                if (result.getKnownMinimized() == null) {
+                    result.isMinimized();
+                }
+                return result;
+            }
+
+            @Override
+            protected void done() {
+                job = null;
+                jobProgress.setVisible(false);
+                cancelBtn.setVisible(false);
+                regexBtn.setEnabled(true);
+                if (!isCancelled()) {
+                    try {
+                        Automaton result = get();
+                        boolean fresh = result.getStates().stream().allMatch(st -> st.getX() == 0 && st.getY() == 0);
+                        if (fresh) {
+                            layoutStatesInCircle(result);
+                        }
+                        result.reorderStates();
+                        stopLayout();
+                        automaton = result;
+                        if (fresh) {
+                            fitView();
+                            arrange(true);
+                        }
+                        instrument(result);
+                        selectedState = null;
+                        translationState = null;
+                        selectedTranslation = null;
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ex) {
+                        if (!(ex.getCause() instanceof CancellationException)) {
+                            JOptionPane.showMessageDialog(AutomatonPanel.this, String.valueOf(ex.getCause()), "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+                }
+                revalidate();
+                refreshStatus();
+                repaint();
+            }
+        };
+        lastPhases.clear();
+        detBtn.setEnabled(false);
+        minBtn.setEnabled(false);
+        regexBtn.setEnabled(false);
+        jobProgress.setVisible(true);
+        cancelBtn.setVisible(true);
+        revalidate();
+        job.execute();
+    }
+
+    // Phases are reported by the automaton a job works on (a copy carries the listeners over),
+    // and to the shared JMX bean.
+    private void instrument(Automaton a) {
+        a.addMetricsListener(statsListener);
+        a.addMetricsListener(AutomatonMetrics.register());
+    }
+
+    private void showStats(PhaseMetrics metrics) {
+        lastPhases.put(metrics.getPhase(), metrics);
+        StringBuilder sb = new StringBuilder("<html>");
+        for (PhaseMetrics m : lastPhases.values()) {
+            if (sb.length() > "<html>".length()) {
+                sb.append("<br>");
+            }
+            sb.append(m);
+        }
+        statsStatus.setText(sb.append("</html>").toString());
+        statsStatus.setVisible(statsToggle.isSelected());
+        revalidate();
     }
 
     private void refreshStatus() {
+        if (trace != null && !isTraceCurrent()) {
+            clearTrace();
+        }
         boolean isDet = automaton.isDeterministic();
         detStatus.setText(isDet ? "● DET" : "○ N-DET");
         detStatus.setForeground(isDet ? new Color(39, 174, 96) : new Color(231, 76, 60));
-        detBtn.setEnabled(!isDet); 
-
-        boolean isMin = automaton.isMinimized(); 
+        detBtn.setEnabled(job == null && !isDet); 
+
+        Boolean isMin = automaton.getKnownMinimized();
+        if (isMin == null) {
+            minStatus.setText("… MIN");
+            minStatus.setForeground(Color.GRAY);
+            minBtn.setEnabled(job == null && isDet);
+            scheduleMinimalityCheck();
+            return;
+        }
         minStatus.setText(isMin ? "● MIN" : "○ N-MIN");
         minStatus.setForeground(isMin ? new Color(39, 174, 96) : new Color(231, 76, 60));
-        minBtn.setEnabled(isDet && !isMin);
+        minBtn.setEnabled(job == null && isDet && !isMin);
+    }
+
+    // Checks minimality of a copy in the background; a check for an older version is cancelled,
+    // and a result that arrives after further edits is ignored by recordMinimized.
+    private void scheduleMinimalityCheck() {
+        Automaton target = automaton;
+        int modCount = target.getModCount();
+        if (minCheck != null) {
+            if (minCheckTarget == target && minCheckModCount == modCount) {
+                return;
+            }
+            minCheck.cancel(true);
+        }
+        Automaton snapshot = target.copy();
+        minCheckTarget = target;
+        minCheckModCount = modCount;
+        minCheck = new SwingWorker<>() {
+            @Override
+            protected Boolean doInBackground() {
+                return snapshot.isMinimized();
+            }
+
+            @Override
+            protected void done() {
+                if (minCheck == this) {
+                    minCheck = null;
+                }
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    target.recordMinimized(modCount, get());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ex) {
+                    return;
+                }
+                if (target == automaton) {
+                    refreshStatus();
+                }
+            }
+        };
+        minCheck.execute();
     }
 
 }
\ No newline at end of file
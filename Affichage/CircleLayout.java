@@ -0,0 +1,28 @@
+package Affichage;
+
+// States evenly spaced on a circle, in state order. The radius grows with the state count so
+// neighbouring circles never overlap.
+final class CircleLayout implements GraphLayout {
+    private final LayoutGraph graph;
+    private final double centerX;
+    private final double centerY;
+    private final double radius;
+
+    CircleLayout(LayoutGraph graph, double centerX, double centerY, double minRadius) {
+        this.graph = graph;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.radius = Math.max(minRadius, graph.size * (2 * RenderModel.STATE_RADIUS + 10) / (2 * Math.PI));
+    }
+
+    @Override
+    public boolean step(double[] x, double[] y) {
+        int n = this.graph.size;
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            x[i] = this.centerX + this.radius * Math.cos(angle);
+            y[i] = this.centerY + this.radius * Math.sin(angle);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package Affichage;
+
+// Fruchterman–Reingold spring embedder: every pair of states repels with k² / d, every edge
+// pulls its ends together with d² / k, and a weak pull towards the centre keeps disconnected
+// parts in view. Repulsion goes through a Barnes–Hut quadtree, so a step is O(n log n). Each
+// move is capped by a temperature that cools every step, and the layout stops once it is cold
+// or nothing moves by more than half a pixel.
+final class ForceLayout implements GraphLayout {
+    static final double EDGE_LENGTH = 120;
+    private static final double THETA = 0.7;
+    private static final double GRAVITY = 0.02;
+    private static final double COOLING = 0.95;
+    private static final double MIN_MOVE = 0.5;
+    private static final int MAX_STEPS = 400;
+
+    private final LayoutGraph graph;
+    private final double centerX;
+    private final double centerY;
+    private final QuadTree tree = new QuadTree();
+    private final double[] dispX;
+    private final double[] dispY;
+    private final double[] force = new double[2];
+    private double temperature;
+    private int steps;
+
+    ForceLayout(LayoutGraph graph, double centerX, double centerY) {
+        this.graph = graph;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.dispX = new double[graph.size];
+        this.dispY = new double[graph.size];
+        this.temperature = EDGE_LENGTH * Math.sqrt(Math.max(1, graph.size)) / 4;
+    }
+
+    @Override
+    public boolean step(double[] x, double[] y) {
+        int n = this.graph.size;
+        double k = EDGE_LENGTH;
+        this.tree.build(x, y, n);
+        for (int i = 0; i < n; i++) {
+            this.force[0] = 0;
+            this.force[1] = 0;
+            this.tree.repulsion(x, y, i, k * k, THETA, this.force);
+            this.dispX[i] = this.force[0] - GRAVITY * (x[i] - this.centerX);
+            this.dispY[i] = this.force[1] - GRAVITY * (y[i] - this.centerY);
+        }
+        for (int e = 0; e < this.graph.from.length; e++) {
+            int a = this.graph.from[e];
+            int b = this.graph.to[e];
+            double dx = x[a] - x[b];
+            double dy = y[a] - y[b];
+            double d = Math.sqrt(dx * dx + dy * dy);
+            double pull = d / k;
+            this.dispX[a] -= dx * pull;
+            this.dispY[a] -= dy * pull;
+            this.dispX[b] += dx * pull;
+            this.dispY[b] += dy * pull;
+        }
+
+        double largest = 0;
+        for (int i = 0; i < n; i++) {
+            double length = Math.sqrt(this.dispX[i] * this.dispX[i] + this.dispY[i] * this.dispY[i]);
+            if (length > 0) {
+                double move = Math.min(length, this.temperature);
+                x[i] += this.dispX[i] / length * move;
+                y[i] += this.dispY[i] / length * move;
+                largest = Math.max(largest, move);
+            }
+        }
+        this.temperature *= COOLING;
+        return ++this.steps < MAX_STEPS && largest > MIN_MOVE;
+    }
+}
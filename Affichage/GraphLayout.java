@@ -0,0 +1,8 @@
+package Affichage;
+
+// A layout algorithm over a LayoutGraph. Positions live in plain arrays indexed like the
+// automaton's state list, so layouts run off the EDT and never touch a State.
+interface GraphLayout {
+    // Moves the points one step and tells whether another step would still move them.
+    boolean step(double[] x, double[] y);
+}
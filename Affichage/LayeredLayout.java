@@ -0,0 +1,135 @@
+package Affichage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Sugiyama-style layers, read left to right: a state's column is its BFS depth from the initial
+// state (states it cannot reach start BFS runs of their own), and rows within a column are
+// ordered by a few barycenter sweeps to cut crossings. Edges spanning several columns get no
+// dummy vertices; for the mostly short edges of a DFA the sweeps do well enough without them.
+final class LayeredLayout implements GraphLayout {
+    static final double COLUMN_GAP = 150;
+    static final double ROW_GAP = 90;
+    private static final int SWEEPS = 8;
+
+    private final LayoutGraph graph;
+    private final double centerX;
+    private final double centerY;
+
+    LayeredLayout(LayoutGraph graph, double centerX, double centerY) {
+        this.graph = graph;
+        this.centerX = centerX;
+        this.centerY = centerY;
+    }
+
+    @Override
+    public boolean step(double[] x, double[] y) {
+        int n = this.graph.size;
+        if (n == 0) {
+            return false;
+        }
+        int[] depth = depths();
+        List<int[]> layers = layers(depth);
+        // Each vertex's position within its layer.
+        double[] rank = new double[n];
+        for (int[] layer : layers) {
+            for (int r = 0; r < layer.length; r++) {
+                rank[layer[r]] = r;
+            }
+        }
+        for (int sweep = 0; sweep < SWEEPS; sweep++) {
+            boolean down = sweep % 2 == 0;
+            for (int l = down ? 1 : layers.size() - 2; down ? l < layers.size() : l >= 0; l += down ? 1 : -1) {
+                order(layers.get(l), depth, down ? l - 1 : l + 1, rank);
+            }
+        }
+
+        double width = (layers.size() - 1) * COLUMN_GAP;
+        for (int l = 0; l < layers.size(); l++) {
+            int[] layer = layers.get(l);
+            for (int r = 0; r < layer.length; r++) {
+                x[layer[r]] = this.centerX - width / 2 + l * COLUMN_GAP;
+                y[layer[r]] = this.centerY + (r - (layer.length - 1) / 2.0) * ROW_GAP;
+            }
+        }
+        return false;
+    }
+
+    private int[] depths() {
+        int n = this.graph.size;
+        int[] depth = new int[n];
+        Arrays.fill(depth, -1);
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int root = this.graph.initial >= 0 ? this.graph.initial : 0, seen = 0; seen < n; root = (root + 1) % n, seen++) {
+            if (depth[root] >= 0) {
+                continue;
+            }
+            int head = tail;
+            depth[root] = 0;
+            queue[tail++] = root;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int p = this.graph.successorStart(v), end = this.graph.successorStart(v + 1); p < end; p++) {
+                    int w = this.graph.successor(p);
+                    if (depth[w] < 0) {
+                        depth[w] = depth[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+        }
+        return depth;
+    }
+
+    private static List<int[]> layers(int[] depth) {
+        int max = 0;
+        for (int d : depth) {
+            max = Math.max(max, d);
+        }
+        int[] counts = new int[max + 1];
+        for (int d : depth) {
+            counts[d]++;
+        }
+        List<int[]> layers = new ArrayList<>(max + 1);
+        for (int d = 0; d <= max; d++) {
+            layers.add(new int[counts[d]]);
+        }
+        int[] fill = new int[max + 1];
+        for (int v = 0; v < depth.length; v++) {
+            layers.get(depth[v])[fill[depth[v]]++] = v;
+        }
+        return layers;
+    }
+
+    // Sorts a layer by the mean rank of each vertex's neighbours in the fixed layer; vertices
+    // with no such neighbour keep their current rank.
+    private void order(int[] layer, int[] depth, int fixed, double[] rank) {
+        Integer[] order = new Integer[layer.length];
+        double[] key = new double[layer.length];
+        for (int i = 0; i < layer.length; i++) {
+            int v = layer[i];
+            order[i] = i;
+            double sum = 0;
+            int count = 0;
+            for (int p = this.graph.adjacentStart(v), end = this.graph.adjacentStart(v + 1); p < end; p++) {
+                int w = this.graph.adjacent(p);
+                if (depth[w] == fixed) {
+                    sum += rank[w];
+                    count++;
+                }
+            }
+            key[i] = count == 0 ? rank[v] : sum / count;
+        }
+        Arrays.sort(order, (a, b) -> key[a] != key[b] ? Double.compare(key[a], key[b]) : Double.compare(rank[layer[a]], rank[layer[b]]));
+        int[] sorted = new int[layer.length];
+        for (int i = 0; i < layer.length; i++) {
+            sorted[i] = layer[order[i]];
+        }
+        for (int i = 0; i < layer.length; i++) {
+            layer[i] = sorted[i];
+            rank[sorted[i]] = i;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package Affichage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import Automaton.*;
+
+// Immutable snapshot of an automaton's shape for the layouts: vertices are indices into the
+// state list, parallel translations collapse into one edge and self-loops are dropped, as
+// neither affects where a state should go. Taken on the EDT, then read from any thread.
+final class LayoutGraph {
+    final int size;
+    final int initial;
+    final int[] from;
+    final int[] to;
+    private final int[] succStart;
+    private final int[] succ;
+    private final int[] adjacentStart;
+    private final int[] adjacent;
+
+    LayoutGraph(Automaton automaton) {
+        List<State> states = automaton.getStates();
+        this.size = states.size();
+        Map<State, Integer> ids = new HashMap<>();
+        int start = -1;
+        for (int i = 0; i < this.size; i++) {
+            ids.put(states.get(i), i);
+            if (start < 0 && states.get(i).isInitial()) {
+                start = i;
+            }
+        }
+        this.initial = start;
+
+        Set<Long> seen = new HashSet<>();
+        int[] f = new int[16];
+        int[] t = new int[16];
+        int count = 0;
+        for (Translation tr : automaton.getTranslations()) {
+            Integer a = ids.get(tr.getFromState());
+            Integer b = ids.get(tr.getToState());
+            if (a == null || b == null || a.equals(b) || !seen.add(((long) a << 32) | b)) {
+                continue;
+            }
+            if (count == f.length) {
+                f = Arrays.copyOf(f, count * 2);
+                t = Arrays.copyOf(t, count * 2);
+            }
+            f[count] = a;
+            t[count] = b;
+            count++;
+        }
+        this.from = Arrays.copyOf(f, count);
+        this.to = Arrays.copyOf(t, count);
+
+        this.succStart = new int[this.size + 1];
+        this.adjacentStart = new int[this.size + 1];
+        for (int e = 0; e < count; e++) {
+            this.succStart[this.from[e] + 1]++;
+            this.adjacentStart[this.from[e] + 1]++;
+            this.adjacentStart[this.to[e] + 1]++;
+        }
+        for (int i = 0; i < this.size; i++) {
+            this.succStart[i + 1] += this.succStart[i];
+            this.adjacentStart[i + 1] += this.adjacentStart[i];
+        }
+        this.succ = new int[count];
+        this.adjacent = new int[2 * count];
+        int[] nextSucc = Arrays.copyOf(this.succStart, this.size);
+        int[] nextAdjacent = Arrays.copyOf(this.adjacentStart, this.size);
+        for (int e = 0; e < count; e++) {
+            this.succ[nextSucc[this.from[e]]++] = this.to[e];
+            this.adjacent[nextAdjacent[this.from[e]]++] = this.to[e];
+            this.adjacent[nextAdjacent[this.to[e]]++] = this.from[e];
+        }
+    }
+
+    int successorStart(int v) {
+        return this.succStart[v];
+    }
+
+    int successor(int p) {
+        return this.succ[p];
+    }
+
+    int adjacentStart(int v) {
+        return this.adjacentStart[v];
+    }
+
+    int adjacent(int p) {
+        return this.adjacent[p];
+    }
+}
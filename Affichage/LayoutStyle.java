@@ -0,0 +1,30 @@
+package Affichage;
+
+enum LayoutStyle {
+    AUTO("Auto layout"),
+    LAYERED("Layered"),
+    FORCE_DIRECTED("Force-directed"),
+    CIRCLE("Circle");
+
+    private final String label;
+
+    LayoutStyle(String label) {
+        this.label = label;
+    }
+
+    // AUTO picks layers for deterministic automata, whose BFS depth reads like the word being
+    // consumed, and springs for everything else.
+    GraphLayout create(LayoutGraph graph, boolean deterministic, double centerX, double centerY, double minRadius) {
+        return switch (this) {
+            case LAYERED -> new LayeredLayout(graph, centerX, centerY);
+            case FORCE_DIRECTED -> new ForceLayout(graph, centerX, centerY);
+            case CIRCLE -> new CircleLayout(graph, centerX, centerY, minRadius);
+            case AUTO -> deterministic ? new LayeredLayout(graph, centerX, centerY) : new ForceLayout(graph, centerX, centerY);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return this.label;
+    }
+}
@@ -0,0 +1,91 @@
+package Affichage;
+
+import java.util.List;
+
+import javax.swing.SwingWorker;
+
+import Automaton.*;
+
+// Runs a GraphLayout off the EDT. Intermediate positions are published about once a frame while
+// the layout converges, then the states ease from wherever they were last shown into the final
+// positions, so even a layout that finishes at once is animated rather than snapped.
+final class LayoutWorker extends SwingWorker<Void, double[][]> {
+    private static final long FRAME_MILLIS = 16;
+    private static final int EASE_FRAMES = 20;
+
+    private final List<State> states;
+    private final GraphLayout layout;
+    private final double[] x;
+    private final double[] y;
+    private final Runnable onFrame;
+    private final Runnable onFinish;
+
+    // Reads the start positions, so it must be created on the EDT.
+    LayoutWorker(List<State> states, GraphLayout layout, Runnable onFrame, Runnable onFinish) {
+        this.states = List.copyOf(states);
+        this.layout = layout;
+        this.x = new double[states.size()];
+        this.y = new double[states.size()];
+        for (int i = 0; i < this.x.length; i++) {
+            this.x[i] = states.get(i).getX();
+            this.y[i] = states.get(i).getY();
+        }
+        this.onFrame = onFrame;
+        this.onFinish = onFinish;
+    }
+
+    @Override
+    protected Void doInBackground() throws InterruptedException {
+        double[] shownX = this.x.clone();
+        double[] shownY = this.y.clone();
+        long last = System.nanoTime();
+        while (!isCancelled() && this.layout.step(this.x, this.y)) {
+            if (System.nanoTime() - last >= FRAME_MILLIS * 1_000_000) {
+                shownX = this.x.clone();
+                shownY = this.y.clone();
+                publish(new double[][] { shownX, shownY });
+                last = System.nanoTime();
+            }
+        }
+        for (int f = 1; f <= EASE_FRAMES && !isCancelled(); f++) {
+            double t = (double) f / EASE_FRAMES;
+            t = t * t * (3 - 2 * t);
+            double[] fx = new double[this.x.length];
+            double[] fy = new double[this.y.length];
+            for (int i = 0; i < fx.length; i++) {
+                fx[i] = shownX[i] + (this.x[i] - shownX[i]) * t;
+                fy[i] = shownY[i] + (this.y[i] - shownY[i]) * t;
+            }
+            publish(new double[][] { fx, fy });
+            Thread.sleep(FRAME_MILLIS);
+        }
+        return null;
+    }
+
+    @Override
+    protected void process(List<double[][]> frames) {
+        if (isCancelled()) {
+            return;
+        }
+        double[][] frame = frames.get(frames.size() - 1);
+        apply(frame[0], frame[1]);
+    }
+
+    // Published frames are delivered on a timer and may trail done(), so the final positions
+    // are applied here as well.
+    @Override
+    protected void done() {
+        if (!isCancelled()) {
+            apply(this.x, this.y);
+            this.onFinish.run();
+        }
+    }
+
+    private void apply(double[] fx, double[] fy) {
+        for (int i = 0; i < this.states.size(); i++) {
+            this.states.get(i).setX((int) Math.round(fx[i]));
+            this.states.get(i).setY((int) Math.round(fy[i]));
+        }
+        this.onFrame.run();
+    }
+}
@@ -0,0 +1,150 @@
+package Affichage;
+
+import java.util.Arrays;
+
+// Barnes–Hut quadtree over a set of points, rebuilt every step of the force-directed layout.
+// A cell that looks small from a point (size / distance below theta) pushes it as a single mass
+// at its centre, so the repulsion on one point costs O(log n) instead of O(n). Nodes live in
+// parallel arrays so a rebuild allocates nothing once the arrays have grown.
+final class QuadTree {
+    // Points closer than this are lumped into one leaf instead of splitting forever.
+    private static final int MAX_DEPTH = 32;
+    private static final int EMPTY = -1;
+    private static final int INTERNAL = -2;
+
+    private double[] minX = new double[64];
+    private double[] minY = new double[64];
+    private double[] size = new double[64];
+    private double[] sumX = new double[64];
+    private double[] sumY = new double[64];
+    private int[] mass = new int[64];
+    private int[] body = new int[64];
+    private int[] child = new int[4 * 64];
+    private int count;
+    private int[] stack = new int[64];
+
+    void build(double[] x, double[] y, int n) {
+        double x0 = Double.POSITIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            x0 = Math.min(x0, x[i]);
+            y0 = Math.min(y0, y[i]);
+            x1 = Math.max(x1, x[i]);
+            y1 = Math.max(y1, y[i]);
+        }
+        this.count = 0;
+        if (n == 0) {
+            return;
+        }
+        node(x0, y0, Math.max(x1 - x0, y1 - y0) + 1);
+        for (int i = 0; i < n; i++) {
+            insert(x, y, i);
+        }
+    }
+
+    // Adds the repulsion strength * m / d, away from every other point, to force[0] and force[1].
+    void repulsion(double[] x, double[] y, int i, double strength, double theta, double[] force) {
+        if (this.count == 0) {
+            return;
+        }
+        double theta2 = theta * theta;
+        int top = 0;
+        this.stack[top++] = 0;
+        while (top > 0) {
+            int node = this.stack[--top];
+            int m = this.mass[node];
+            if (m == 0) {
+                continue;
+            }
+            double dx = x[i] - this.sumX[node] / m;
+            double dy = y[i] - this.sumY[node] / m;
+            double d2 = dx * dx + dy * dy;
+            if (this.body[node] == INTERNAL && this.size[node] * this.size[node] >= theta2 * d2) {
+                if (top + 4 > this.stack.length) {
+                    this.stack = Arrays.copyOf(this.stack, this.stack.length * 2);
+                }
+                for (int q = 0; q < 4; q++) {
+                    this.stack[top++] = this.child[4 * node + q];
+                }
+                continue;
+            }
+            if (this.body[node] == i) {
+                // The leaf holding i itself, possibly with points lumped on top of it.
+                m--;
+                if (m == 0) {
+                    continue;
+                }
+            }
+            if (d2 < 1e-2) {
+                // Coincident points: push apart along a direction that differs per point.
+                dx = 0.1 * Math.cos(i);
+                dy = 0.1 * Math.sin(i);
+                d2 = 1e-2;
+            }
+            double f = strength * m / d2;
+            force[0] += dx * f;
+            force[1] += dy * f;
+        }
+    }
+
+    private void insert(double[] x, double[] y, int i) {
+        int node = 0;
+        for (int depth = 0;; depth++) {
+            this.mass[node]++;
+            this.sumX[node] += x[i];
+            this.sumY[node] += y[i];
+            if (this.body[node] == EMPTY) {
+                this.body[node] = i;
+                return;
+            }
+            if (this.body[node] != INTERNAL) {
+                if (depth >= MAX_DEPTH) {
+                    return;
+                }
+                int resident = this.body[node];
+                this.body[node] = INTERNAL;
+                double half = this.size[node] / 2;
+                for (int q = 0; q < 4; q++) {
+                    int c = node(this.minX[node] + (q & 1) * half, this.minY[node] + (q >> 1) * half, half);
+                    this.child[4 * node + q] = c;
+                }
+                int c = this.child[4 * node + quadrant(node, x[resident], y[resident])];
+                this.mass[c] = 1;
+                this.sumX[c] = x[resident];
+                this.sumY[c] = y[resident];
+                this.body[c] = resident;
+            }
+            node = this.child[4 * node + quadrant(node, x[i], y[i])];
+        }
+    }
+
+    private int quadrant(int node, double px, double py) {
+        double half = this.size[node] / 2;
+        return (px >= this.minX[node] + half ? 1 : 0) | (py >= this.minY[node] + half ? 2 : 0);
+    }
+
+    private int node(double x0, double y0, double s) {
+        if (this.count == this.mass.length) {
+            int capacity = this.count * 2;
+            this.minX = Arrays.copyOf(this.minX, capacity);
+            this.minY = Arrays.copyOf(this.minY, capacity);
+            this.size = Arrays.copyOf(this.size, capacity);
+            this.sumX = Arrays.copyOf(this.sumX, capacity);
+            this.sumY = Arrays.copyOf(this.sumY, capacity);
+            this.mass = Arrays.copyOf(this.mass, capacity);
+            this.body = Arrays.copyOf(this.body, capacity);
+            this.child = Arrays.copyOf(this.child, 4 * capacity);
+        }
+        int node = this.count++;
+        this.minX[node] = x0;
+        this.minY[node] = y0;
+        this.size[node] = s;
+        this.sumX[node] = 0;
+        this.sumY[node] = 0;
+        this.mass[node] = 0;
+        this.body[node] = EMPTY;
+        return node;
+    }
+}
@@ -0,0 +1,345 @@
+package Affichage;
+
+import java.awt.FontMetrics;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.QuadCurve2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import Automaton.*;
+
+// Retained geometry for the panel: one EdgeView per translation, laid out once and redone only
+// when an endpoint moves. The version changes whenever something outside the moving state
+// changes, which is what the panel's cached static layer is keyed on.
+final class RenderModel {
+    static final int STATE_RADIUS = 25;
+    static final int ARROW_SIZE = 10;
+    private static final int LOOP_SIZE = 30;
+    private static final int CELL_SIZE = 64;
+    private static final int PICK_DISTANCE = 4;
+
+    private Automaton automaton;
+    private int modCount = -1;
+    private final List<EdgeView> edges = new ArrayList<>();
+    private final Map<State, List<EdgeView>> incident = new HashMap<>();
+    private final Map<State, Long> positions = new HashMap<>();
+    private final Map<Translation, EdgeView> views = new HashMap<>();
+    private final SpatialGrid<State> stateGrid = new SpatialGrid<>(CELL_SIZE);
+    private final SpatialGrid<EdgeView> edgeGrid = new SpatialGrid<>(CELL_SIZE);
+    private long version;
+
+    long getVersion() {
+        return this.version;
+    }
+
+    List<EdgeView> getEdges() {
+        return this.edges;
+    }
+
+    List<EdgeView> incidentTo(State state) {
+        List<EdgeView> list = this.incident.get(state);
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    EdgeView viewOf(Translation translation) {
+        return this.views.get(translation);
+    }
+
+    // Rebuilds after structural edits only; positions are kept current by sync (every frame) and
+    // moved (every drag event), so hit tests never scan the whole automaton.
+    void ensure(Automaton automaton, FontMetrics fm) {
+        if (automaton != this.automaton || automaton.getModCount() != this.modCount) {
+            rebuild(automaton, fm);
+        }
+    }
+
+    void moved(State state, FontMetrics fm) {
+        if (!this.positions.containsKey(state)) {
+            return;
+        }
+        this.positions.put(state, pack(state));
+        this.stateGrid.put(state, circle(state));
+        for (EdgeView e : incidentTo(state)) {
+            e.layout(fm);
+            this.edgeGrid.put(e, e.cover(CELL_SIZE));
+        }
+    }
+
+    // The state whose circle contains the point, nearest centre first.
+    State stateAt(int x, int y) {
+        State best = null;
+        long bestDistance = (long) STATE_RADIUS * STATE_RADIUS;
+        for (State s : this.stateGrid.query(x, y)) {
+            long dx = s.getX() - x;
+            long dy = s.getY() - y;
+            if (dx * dx + dy * dy <= bestDistance) {
+                best = s;
+                bestDistance = dx * dx + dy * dy;
+            }
+        }
+        return best;
+    }
+
+    // The edge whose label or stroke is under the point; labels win over strokes.
+    EdgeView edgeAt(int x, int y) {
+        EdgeView stroke = null;
+        for (EdgeView e : this.edgeGrid.query(x, y)) {
+            if (!e.bounds.contains(x, y)) {
+                continue;
+            }
+            if (e.labelBox.contains(x, y)) {
+                return e;
+            }
+            if (stroke == null && e.line != null && (e.head.contains(x, y) || e.distanceTo(x, y) <= PICK_DISTANCE)) {
+                stroke = e;
+            }
+        }
+        return stroke;
+    }
+
+    // Brings the model up to date with the automaton; changes that only concern `moving` (the
+    // state being dragged) leave the version alone.
+    void sync(Automaton automaton, State moving, FontMetrics fm) {
+        if (automaton != this.automaton || automaton.getModCount() != this.modCount) {
+            rebuild(automaton, fm);
+            return;
+        }
+        for (State s : automaton.getStates()) {
+            long position = pack(s);
+            Long old = this.positions.put(s, position);
+            if (old == null || old != position) {
+                this.stateGrid.put(s, circle(s));
+                if (s != moving) {
+                    this.version++;
+                }
+            }
+        }
+        for (EdgeView e : this.edges) {
+            if (e.isStale(fm)) {
+                e.layout(fm);
+                this.edgeGrid.put(e, e.cover(CELL_SIZE));
+                if (e.from != moving && e.to != moving) {
+                    this.version++;
+                }
+            }
+        }
+    }
+
+    private void rebuild(Automaton automaton, FontMetrics fm) {
+        this.automaton = automaton;
+        this.modCount = automaton.getModCount();
+        this.edges.clear();
+        this.incident.clear();
+        this.positions.clear();
+        this.views.clear();
+        this.stateGrid.clear();
+        this.edgeGrid.clear();
+        for (State s : automaton.getStates()) {
+            this.positions.put(s, pack(s));
+            this.stateGrid.put(s, circle(s));
+        }
+
+        Set<List<State>> pairs = new HashSet<>();
+        for (Translation t : automaton.getTranslations()) {
+            pairs.add(List.of(t.getFromState(), t.getToState()));
+        }
+        for (Translation t : automaton.getTranslations()) {
+            State from = t.getFromState();
+            State to = t.getToState();
+            EdgeView e = new EdgeView(t, from != to && pairs.contains(List.of(to, from)));
+            e.layout(fm);
+            this.edges.add(e);
+            this.views.put(t, e);
+            this.edgeGrid.put(e, e.cover(CELL_SIZE));
+            this.incident.computeIfAbsent(from, k -> new ArrayList<>()).add(e);
+            if (to != from) {
+                this.incident.computeIfAbsent(to, k -> new ArrayList<>()).add(e);
+            }
+        }
+        this.version++;
+    }
+
+    private static Rectangle circle(State s) {
+        return new Rectangle(s.getX() - STATE_RADIUS, s.getY() - STATE_RADIUS, 2 * STATE_RADIUS, 2 * STATE_RADIUS);
+    }
+
+    private static long pack(State s) {
+        return ((long) s.getX() << 32) | (s.getY() & 0xFFFFFFFFL);
+    }
+
+    static Shape arrowHead(double x, double y, double angle) {
+        Polygon head = new Polygon();
+        head.addPoint(0, 0);
+        head.addPoint(-ARROW_SIZE, -ARROW_SIZE / 2);
+        head.addPoint(-ARROW_SIZE, ARROW_SIZE / 2);
+        AffineTransform at = AffineTransform.getTranslateInstance(x, y);
+        at.rotate(angle);
+        return at.createTransformedShape(head);
+    }
+
+    static final class EdgeView {
+        final Translation translation;
+        final State from;
+        final State to;
+        final boolean reverse;
+        private int fx;
+        private int fy;
+        private int tx;
+        private int ty;
+        private String label;
+        private FontMetrics metrics;
+        Shape line;
+        Shape head;
+        int labelX;
+        int labelY;
+        Rectangle labelBox;
+        Rectangle bounds;
+
+        EdgeView(Translation translation, boolean reverse) {
+            this.translation = translation;
+            this.from = translation.getFromState();
+            this.to = translation.getToState();
+            this.reverse = reverse;
+        }
+
+        String getLabel() {
+            return this.label;
+        }
+
+        boolean isStale(FontMetrics fm) {
+            return fm != this.metrics || this.fx != this.from.getX() || this.fy != this.from.getY()
+                    || this.tx != this.to.getX() || this.ty != this.to.getY();
+        }
+
+        void layout(FontMetrics fm) {
+            this.metrics = fm;
+            this.fx = this.from.getX();
+            this.fy = this.from.getY();
+            this.tx = this.to.getX();
+            this.ty = this.to.getY();
+            this.line = null;
+            this.head = null;
+
+            if (this.from == this.to) {
+                int xPos = this.fx - LOOP_SIZE / 2;
+                int yPos = this.fy - STATE_RADIUS - LOOP_SIZE + 5;
+                this.line = new Arc2D.Double(xPos, yPos, LOOP_SIZE, LOOP_SIZE, -30, 240, Arc2D.OPEN);
+                this.head = arrowHead(this.fx + 8, this.fy - STATE_RADIUS, Math.PI / 3);
+                this.label = loopLabel(this.translation.getSymbol());
+                this.labelX = this.fx;
+                this.labelY = yPos - 5;
+            } else {
+                this.label = this.translation.getSymbol();
+                int offset = this.reverse ? 35 : 15;
+                double dx = this.tx - this.fx;
+                double dy = this.ty - this.fy;
+                double len = Math.sqrt(dx * dx + dy * dy);
+                this.labelX = (this.fx + this.tx) / 2 + (int) (-dy / Math.max(len, 1) * offset);
+                this.labelY = (this.fy + this.ty) / 2 + (int) (dx / Math.max(len, 1) * offset);
+                if (len > 0) {
+                    if (this.reverse) {
+                        layoutCurve(dx, dy, len);
+                    } else {
+                        double ux = dx / len;
+                        double uy = dy / len;
+                        int endX = (int) (this.tx - ux * STATE_RADIUS);
+                        int endY = (int) (this.ty - uy * STATE_RADIUS);
+                        this.line = new Line2D.Float((int) (this.fx + ux * STATE_RADIUS), (int) (this.fy + uy * STATE_RADIUS), endX, endY);
+                        this.head = arrowHead(endX, endY, Math.atan2(dy, dx));
+                    }
+                }
+            }
+
+            int textWidth = fm.stringWidth(this.label);
+            int textHeight = fm.getHeight();
+            this.labelBox = new Rectangle(this.labelX - textWidth / 2 - 2, this.labelY - textHeight / 2 - 2, textWidth + 4, textHeight);
+            this.bounds = new Rectangle(this.labelBox);
+            if (this.line != null) {
+                this.bounds.add(this.line.getBounds());
+                this.bounds.add(this.head.getBounds());
+            }
+            this.bounds.grow(2, 2);
+        }
+
+        // Small boxes along the flattened path plus the label and arrowhead, each no longer
+        // than a grid cell, for registering the edge in the spatial grid.
+        List<Rectangle> cover(int step) {
+            List<Rectangle> boxes = new ArrayList<>();
+            boxes.add(this.labelBox);
+            if (this.line == null) {
+                return boxes;
+            }
+            boxes.add(this.head.getBounds());
+            double[] c = new double[6];
+            double lastX = 0;
+            double lastY = 0;
+            for (PathIterator it = this.line.getPathIterator(null, 2); !it.isDone(); it.next()) {
+                int type = it.currentSegment(c);
+                if (type == PathIterator.SEG_LINETO) {
+                    double length = Math.hypot(c[0] - lastX, c[1] - lastY);
+                    int pieces = Math.max(1, (int) Math.ceil(length / step));
+                    for (int i = 0; i < pieces; i++) {
+                        double x0 = lastX + (c[0] - lastX) * i / pieces;
+                        double y0 = lastY + (c[1] - lastY) * i / pieces;
+                        double x1 = lastX + (c[0] - lastX) * (i + 1) / pieces;
+                        double y1 = lastY + (c[1] - lastY) * (i + 1) / pieces;
+                        Rectangle box = new Rectangle((int) Math.floor(Math.min(x0, x1)), (int) Math.floor(Math.min(y0, y1)), 0, 0);
+                        box.add(Math.ceil(Math.max(x0, x1)), Math.ceil(Math.max(y0, y1)));
+                        box.grow(PICK_DISTANCE, PICK_DISTANCE);
+                        boxes.add(box);
+                    }
+                }
+                lastX = c[0];
+                lastY = c[1];
+            }
+            return boxes;
+        }
+
+        double distanceTo(int x, int y) {
+            double best = Double.MAX_VALUE;
+            double[] c = new double[6];
+            double lastX = 0;
+            double lastY = 0;
+            for (PathIterator it = this.line.getPathIterator(null, 2); !it.isDone(); it.next()) {
+                if (it.currentSegment(c) == PathIterator.SEG_LINETO) {
+                    best = Math.min(best, Line2D.ptSegDist(lastX, lastY, c[0], c[1], x, y));
+                }
+                lastX = c[0];
+                lastY = c[1];
+            }
+            return best;
+        }
+
+        private void layoutCurve(double dx, double dy, double len) {
+            double nx = -dy / len;
+            double ny = dx / len;
+            int controlX = (this.fx + this.tx) / 2 + (int) (nx * 40);
+            int controlY = (this.fy + this.ty) / 2 + (int) (ny * 40);
+            double tdx = this.tx - controlX;
+            double tdy = this.ty - controlY;
+            double tlen = Math.sqrt(tdx * tdx + tdy * tdy);
+            int endX = (int) (this.tx - tdx / tlen * STATE_RADIUS);
+            int endY = (int) (this.ty - tdy / tlen * STATE_RADIUS);
+            this.line = new QuadCurve2D.Float(this.fx, this.fy, controlX, controlY, endX, endY);
+            this.head = arrowHead(endX, endY, Math.atan2(tdy, tdx));
+        }
+
+        private static String loopLabel(String sym) {
+            if (sym == null || sym.isEmpty() || sym.equals("eps")) {
+                return "ε";
+            }
+            return sym.replaceAll("\\s+", " ");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package Affichage;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Uniform grid: an item is registered in every cell touched by one of its boxes. Long items
+// (edges) are described by many small boxes along their path rather than one bounding box,
+// so a diagonal edge occupies a strip of cells instead of a whole rectangle of them.
+final class SpatialGrid<T> {
+    private final int cellSize;
+    private final Map<Long, List<T>> cells = new HashMap<>();
+    private final Map<T, long[]> keys = new HashMap<>();
+
+    SpatialGrid(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    void clear() {
+        this.cells.clear();
+        this.keys.clear();
+    }
+
+    void put(T item, Rectangle box) {
+        put(item, List.of(box));
+    }
+
+    void put(T item, List<Rectangle> boxes) {
+        long[] covered = new long[8];
+        int count = 0;
+        for (Rectangle box : boxes) {
+            for (int cx = cell(box.x), ex = cell(box.x + box.width); cx <= ex; cx++) {
+                for (int cy = cell(box.y), ey = cell(box.y + box.height); cy <= ey; cy++) {
+                    if (count == covered.length) {
+                        covered = Arrays.copyOf(covered, count * 2);
+                    }
+                    covered[count++] = key(cx, cy);
+                }
+            }
+        }
+        Arrays.sort(covered, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || covered[i] != covered[i - 1]) {
+                covered[distinct++] = covered[i];
+            }
+        }
+        covered = Arrays.copyOf(covered, distinct);
+        long[] old = this.keys.get(item);
+        if (Arrays.equals(old, covered)) {
+            return;
+        }
+        remove(item);
+        this.keys.put(item, covered);
+        for (long key : covered) {
+            this.cells.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
+        }
+    }
+
+    void remove(T item) {
+        long[] covered = this.keys.remove(item);
+        if (covered == null) {
+            return;
+        }
+        for (long key : covered) {
+            List<T> list = this.cells.get(key);
+            if (list != null) {
+                list.remove(item);
+                if (list.isEmpty()) {
+                    this.cells.remove(key);
+                }
+            }
+        }
+    }
+
+    // Candidates whose boxes may contain (x, y); callers do the exact test.
+    List<T> query(int x, int y) {
+        List<T> list = this.cells.get(key(cell(x), cell(y)));
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    private int cell(int v) {
+        return Math.floorDiv(v, this.cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
@@ -1,27 +1,76 @@
 package Automaton;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class Automaton {
     List<State> states;
     List<Translation> translations;
+    private final SymbolTable symbolTable = new SymbolTable();
+    private Map<State, OutgoingEdges> outgoing;
+    private final EpsilonClosures closures = new EpsilonClosures(this);
+    private MatchEngine engine = MatchEngine.AUTO;
+    private final List<MetricsListener> metricsListeners = new CopyOnWriteArrayList<>();
+    private int modCount;
+    private int conflicts;
+    private WordMatcher matcher;
+    private int matcherModCount = -1;
+    private BitParallelNfa bitParallel;
+    private int bitParallelModCount = -1;
+    private int[] partition;
+    private int partitionModCount = -1;
+    private boolean minimal;
+    private int minimalModCount = -1;
 
     public Automaton() {
         this.states = new ArrayList<>();
         this.translations = new ArrayList<>();
+        this.outgoing = new HashMap<>();
     }
 
     public Automaton(List<State> states, List<Translation> translations) {
         this.states = states;
         this.translations = translations;
+        this.translations.replaceAll(this::adopt);
+        rebuildIndex();
+    }
+
+    public Automaton copy() {
+        Map<State, State> copies = new HashMap<>();
+        List<State> newStates = new ArrayList<>(this.states.size());
+        for (State s : this.states) {
+            State c = new State(s.getName(), s.isInitial(), s.isAccepting(), s.getX(), s.getY());
+            c.setPatterns(s.getPatterns());
+            copies.put(s, c);
+            newStates.add(c);
+        }
+        List<Translation> newTranslations = new ArrayList<>(this.translations.size());
+        for (Translation t : this.translations) {
+            State from = copies.get(t.getFromState());
+            State to = copies.get(t.getToState());
+            if (from != null && to != null) {
+                newTranslations.add(new Translation(this.symbolTable, t.getSymbols(), from, to));
+            }
+        }
+        Automaton copy = new Automaton(newStates, newTranslations);
+        copy.engine = this.engine;
+        copy.metricsListeners.addAll(this.metricsListeners);
+        return copy;
     }
 
     public List<State> getStates() {
@@ -29,23 +78,133 @@ public class Automaton {
     }
 
     public List<Translation> getTranslations() {
-        return this.translations;
+        return Collections.unmodifiableList(this.translations);
+    }
+
+    public SymbolTable getSymbolTable() {
+        return this.symbolTable;
+    }
+
+    public List<Translation> getOutgoingTranslations(State state) {
+        OutgoingEdges edges = this.outgoing.get(state);
+        return edges == null ? Collections.emptyList() : edges.getTranslations();
+    }
+
+    public Set<State> getTargets(State state, String symbol) {
+        int id = this.symbolTable.idOf(symbol);
+        return id < 0 || SymbolTable.isEpsilon(id) ? Collections.emptySet() : getTargets(state, id);
+    }
+
+    public Set<State> getTargets(State state, int symbol) {
+        OutgoingEdges edges = this.outgoing.get(state);
+        return edges == null ? Collections.emptySet() : edges.getTargets(symbol);
+    }
+
+    public Set<State> getEpsilonTargets(State state) {
+        OutgoingEdges edges = this.outgoing.get(state);
+        return edges == null ? Collections.emptySet() : edges.getEpsilonTargets();
+    }
+
+    public int[] getSymbols(State state) {
+        OutgoingEdges edges = this.outgoing.get(state);
+        return edges == null ? new int[0] : edges.getSymbols();
     }
     
     public void addState(State state) {
         this.states.add(state);
+        this.modCount++;
     }
 
     public void addState(List<State> states) { 
         this.states.addAll(states);
+        this.modCount++;
+    }
+
+    public void setInitial(State state, boolean initial) {
+        state.setInitial(initial);
+        this.modCount++;
+    }
+
+    public void setAccepting(State state, boolean accepting) {
+        state.setAccepting(accepting);
+        this.modCount++;
+    }
+
+    public void setPatterns(State state, BitSet patterns) {
+        state.setPatterns(patterns);
+        this.modCount++;
     }
 
     public void addTranslation(State from, State to, String symbol) {
-        this.translations.add(new Translation(symbol, from, to));
+        Translation t = new Translation(this.symbolTable, symbol, from, to);
+        this.translations.add(t);
+        indexTranslation(t);
+        this.modCount++;
+    }
+
+    public void addTranslation(State from, State to, int[] symbols) {
+        Translation t = new Translation(this.symbolTable, symbols, from, to);
+        this.translations.add(t);
+        indexTranslation(t);
+        this.modCount++;
     }
 
     public void addTranslation(List<Translation> translations) {
-        this.translations.addAll(translations);
+        for (Translation t : translations) {
+            Translation own = adopt(t);
+            this.translations.add(own);
+            indexTranslation(own);
+        }
+        this.modCount++;
+    }
+
+    private Translation adopt(Translation t) {
+        SymbolTable other = t.getSymbolTable();
+        if (other == this.symbolTable) {
+            return t;
+        }
+        int[] ids = Arrays.stream(t.getSymbols())
+                .map(id -> this.symbolTable.intern(other.nameOf(id)))
+                .sorted()
+                .distinct()
+                .toArray();
+        return new Translation(this.symbolTable, ids, t.getFromState(), t.getToState());
+    }
+
+    public void addSymbol(Translation t, String symbol) {
+        updateSymbols(t, () -> t.addSymbol(symbol));
+        if (t.hasEpsilon()) {
+            this.closures.invalidate(t.getFromState());
+        }
+        this.modCount++;
+    }
+
+    public void removeSymbol(Translation t, String symbol) {
+        boolean hadEpsilon = t.hasEpsilon();
+        updateSymbols(t, () -> t.removeSymbol(symbol));
+        if (hadEpsilon) {
+            this.closures.invalidate(t.getFromState());
+        }
+        if (t.hasNoSymbols()) {
+            removeTranslation(t);
+        } else {
+            this.modCount++;
+        }
+    }
+
+    public void removeTranslation(Translation t) {
+        if (this.translations.remove(t)) {
+            OutgoingEdges edges = this.outgoing.get(t.getFromState());
+            if (edges != null) {
+                this.conflicts -= edges.getConflicts();
+                edges.remove(t);
+                this.conflicts += edges.getConflicts();
+            }
+            if (t.hasEpsilon()) {
+                this.closures.invalidate(t.getFromState());
+            }
+            this.modCount++;
+        }
     }
 
     public int getStateCount() {
@@ -54,14 +213,84 @@ public class Automaton {
 
     public void removeAllStates() { 
         this.states.clear();
+        this.closures.clear();
+        this.modCount++;
     }
 
     public void removeAllTranslations() {
         this.translations.clear();
+        this.outgoing.clear();
+        this.conflicts = 0;
+        this.closures.clear();
+        this.modCount++;
     }
 
     public void removeState(State state) {
         this.states.remove(state);
+        OutgoingEdges removed = this.outgoing.remove(state);
+        if (removed != null) {
+            this.conflicts -= removed.getConflicts();
+        }
+        this.closures.remove(state);
+        this.modCount++;
+
+        Set<State> touched = new HashSet<>();
+        this.translations.removeIf(t -> {
+            if (t.getFromState() == state) {
+                return true;
+            }
+            if (t.getToState() == state) {
+                touched.add(t.getFromState());
+                return true;
+            }
+            return false;
+        });
+        for (State s : touched) {
+            OutgoingEdges edges = this.outgoing.get(s);
+            if (edges != null) {
+                this.conflicts -= edges.getConflicts();
+                for (Translation t : new ArrayList<>(edges.getTranslations())) {
+                    if (t.getToState() == state) {
+                        edges.remove(t);
+                    }
+                }
+                this.conflicts += edges.getConflicts();
+            }
+        }
+    }
+
+    private void indexTranslation(Translation t) {
+        OutgoingEdges edges = this.outgoing.computeIfAbsent(t.getFromState(), k -> new OutgoingEdges());
+        this.conflicts -= edges.getConflicts();
+        edges.add(t);
+        this.conflicts += edges.getConflicts();
+        if (t.hasEpsilon()) {
+            this.closures.invalidate(t.getFromState());
+        }
+    }
+
+    // Re-indexes a translation whose symbols change, keeping the conflict count exact.
+    private void updateSymbols(Translation t, Runnable change) {
+        OutgoingEdges edges = this.outgoing.get(t.getFromState());
+        if (edges == null || !edges.contains(t)) {
+            change.run();
+            return;
+        }
+        this.conflicts -= edges.getConflicts();
+        edges.unindex(t);
+        change.run();
+        edges.index(t);
+        this.conflicts += edges.getConflicts();
+    }
+
+    private void rebuildIndex() {
+        this.modCount++;
+        this.outgoing = new HashMap<>();
+        this.conflicts = 0;
+        this.closures.clear();
+        for (Translation t : this.translations) {
+            indexTranslation(t);
+        }
     }
 
     public String getNextStateName() {
@@ -94,158 +323,169 @@ public class Automaton {
     }
 
     public Set<State> getEpsilonClosure(Set<State> states) {
-        Set<State> closure = new HashSet<>(states);
-        Stack<State> stack = new Stack<>();
-        stack.addAll(states);
-
-        while (!stack.isEmpty()) {
-            State current = stack.pop();
-            for (Translation t: this.translations) {
-                if (t.getFromState().equals(current)) {
-                    if (t.getSymbol().equals("ε") || t.getSymbol().equals("eps") || t.getSymbol().equals("...")) {
-                        if (!closure.contains(t.getToState())) {
-                            closure.add(t.getToState());
-                            stack.push(t.getToState());
-                        }
-                    }
-                }
-            }
+        BitSet slots = new BitSet();
+        for (State s : states) {
+            slots.or(this.closures.closureOf(s));
+        }
+        Set<State> closure = new HashSet<>();
+        for (int i = slots.nextSetBit(0); i >= 0; i = slots.nextSetBit(i + 1)) {
+            closure.add(this.closures.stateAt(i));
         }
         return closure;
     }
 
-    public boolean accepts(String input) {
-        if (states.isEmpty()) {
-            return false;
+    public MatchEngine getEngine() {
+        return this.engine;
+    }
+
+    public void setEngine(MatchEngine engine) {
+        this.engine = engine;
+        this.matcher = null;
+    }
+
+    // Listeners are carried over by copy(), so work done on a snapshot is still reported.
+    public void addMetricsListener(MetricsListener listener) {
+        if (!this.metricsListeners.contains(listener)) {
+            this.metricsListeners.add(listener);
         }
-        State initialState = null;
-        for (State s : states) {
-            if (s.isInitial()) {
-                initialState = s;
-                break;
-            }
+    }
+
+    public void removeMetricsListener(MetricsListener listener) {
+        this.metricsListeners.remove(listener);
+    }
+
+    public WordMatcher matcher() {
+        if (this.states.isEmpty()) {
+            return input -> false;
         }
-        if (initialState == null) {
-            return false;
+        if (this.matcher == null || this.matcherModCount != this.modCount) {
+            this.matcher = switch (this.engine) {
+                case COMPILED_DFA -> compile();
+                case BIT_PARALLEL_NFA -> bitParallel();
+                case LAZY_DFA -> new LazyDfa(bitParallel());
+                case AUTO -> isDeterministic() ? compile() : bitParallel();
+            };
+            this.matcherModCount = this.modCount;
         }
+        return this.matcher;
+    }
 
-        Set<State> currentStates = new HashSet<>();
-        currentStates.add(initialState);
-        currentStates = getEpsilonClosure(currentStates);
-        
-        for (char c : input.toCharArray()) {
-            String symbol = String.valueOf(c);
-            Set<State> nextStates = new HashSet<>();
-
-            for (State s : currentStates) {
-                for (Translation t : this.translations) {
-                    if (t.getFromState().equals(s)) {
-                        String[] symbols = t.getSymbol().split("[ ,]+");
-                        for (String sym : symbols) {
-                            if (sym.equals(symbol)) {
-                                nextStates.add(t.getToState());
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-            currentStates = getEpsilonClosure(nextStates);
+    public LazyDfa lazyDfa(long memoryBudget) {
+        return new LazyDfa(bitParallel(), memoryBudget);
+    }
 
-            if (currentStates.isEmpty()) {
-                return false;
-            }
+    public boolean accepts(String input) {
+        if (states.isEmpty()) {
+            return false;
         }
+        return matcher().matches(input);
+    }
 
-        for (State s : currentStates) {
-            if (s.isAccepting()) {
-                return true;
-            }
+    public BitSet matchingPatterns(String input) {
+        return matcher().matchingPatterns(input);
+    }
+
+    public BatchResult acceptsAll(Stream<String> words) {
+        return BatchResult.evaluate(matcher(), words);
+    }
+
+    public BatchResult acceptsAll(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            return acceptsAll(lines);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        return false;
     }
 
-    public Set<State> computeLastVisited(String input) {
-        Set<State> visited = new HashSet<>();
+    public Searcher searcher() {
+        return new Searcher(compileCopy());
+    }
 
-        Set<State> currentStates = new HashSet<>();
-        for (State s : states) {
-            if (s.isInitial()) {
-                currentStates.add(s);
-                visited.add(s);
-            }
+    public RequiredLiterals requiredLiterals() {
+        return RequiredLiterals.analyze(compileCopy());
+    }
+
+    private CompiledDfa compileCopy() {
+        if (isDeterministic()) {
+            return compile();
         }
+        Automaton dfa = copy();
+        dfa.determinize();
+        return dfa.compile();
+    }
 
-        for (char symbol : input.toCharArray()) {
-            String sym = String.valueOf(symbol);
-            Set<State> nextStates = new HashSet<>();
+    // Records the active states after every character in one pass, for playback without
+    // re-running the input. The trace refers to this automaton and goes stale once it is edited.
+    public WordTrace trace(String input) {
+        return bitParallel().trace(this, input);
+    }
 
-            for (State current : currentStates) {
-                for (Translation t : this.translations) {
-                    if (t.getFromState().equals(current) && t.getSymbol().contains(sym)) {
-                        nextStates.add(t.getToState());
-                        visited.add(t.getToState());
-                    }
-                }
-            }
-            currentStates = nextStates;
-            if (currentStates.isEmpty()) {
-                break;
-            }
+    public Set<State> computeLastVisited(String input) {
+        return bitParallel().visited(input);
+    }
+
+    private BitParallelNfa bitParallel() {
+        if (this.bitParallel == null || this.bitParallelModCount != this.modCount) {
+            this.bitParallel = new BitParallelNfa(this);
+            this.bitParallelModCount = this.modCount;
         }
-        return visited;
+        return this.bitParallel;
     }
 
     public void removeEpsilonTransitions() {
+        PhaseRecorder recorder = new PhaseRecorder(Phase.EPSILON_REMOVAL, this.states.size(), this.metricsListeners);
+        long hits = this.closures.getHits();
+        long misses = this.closures.getMisses();
         List<Translation> newTranslations = new ArrayList<>();
         
         for (State s : new ArrayList<>(this.states)) {
-            Set<State> startSet = new HashSet<>();
-            startSet.add(s);
-            Set<State> closure = getEpsilonClosure(startSet);
+            Cancellation.check();
+            BitSet closure = this.closures.closureOf(s);
             
-            for (State reachable : closure) {
+            for (int i = closure.nextSetBit(0); i >= 0; i = closure.nextSetBit(i + 1)) {
+                State reachable = this.closures.stateAt(i);
                 if (reachable.isAccepting()) {
                     s.setAccepting(true);
+                    if (reachable != s && reachable.hasPatterns()) {
+                        s.addPatterns(reachable.getPatterns());
+                    }
                 }
                 
-                for (Translation t : this.translations) {
-                    if (t.getFromState().equals(reachable) && !isEpsilon(t.getSymbol())) {
-                        newTranslations.add(new Translation(t.getSymbol(), s, t.getToState()));
+                for (int symbol : getSymbols(reachable)) {
+                    for (State target : getTargets(reachable, symbol)) {
+                        newTranslations.add(new Translation(this.symbolTable, new int[] { symbol }, s, target));
                     }
                 }
             }
         }
 
-        this.translations.clear();
-        this.translations.addAll(newTranslations);
+        this.translations = newTranslations;
+        recorder.closureHits = this.closures.getHits() - hits;
+        recorder.closureMisses = this.closures.getMisses() - misses;
         
         removeDuplicateTranslations();
         removeUnreachableStates();
         reorderStates();
-    }
-
-    private boolean isEpsilon(String sym) {
-        return sym == null || sym.equals("ε") || sym.equals("eps") || sym.equals("...");
+        recorder.finish(this.states.size());
     }
 
     public void removeDuplicateTranslations() {
         List<Translation> uniqueTranslations = new ArrayList<>();
+        Map<State, Map<State, Translation>> byEndpoints = new HashMap<>();
 
         for (Translation t : this.translations) {
-            boolean found = false;
-            for (Translation u : uniqueTranslations) {
-                if (u.getFromState().equals(t.getFromState()) && u.getToState().equals(t.getToState())) {
-                    u.addSymbol(t.getSymbol());
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                uniqueTranslations.add(new Translation(t.getSymbol(), t.getFromState(), t.getToState()));
+            Map<State, Translation> fromMap = byEndpoints.computeIfAbsent(t.getFromState(), k -> new HashMap<>());
+            Translation u = fromMap.get(t.getToState());
+            if (u != null) {
+                u.addSymbols(t.getSymbols());
+            } else {
+                u = new Translation(this.symbolTable, t.getSymbols(), t.getFromState(), t.getToState());
+                fromMap.put(t.getToState(), u);
+                uniqueTranslations.add(u);
             }
         }
         this.translations = uniqueTranslations;
+        rebuildIndex();
     }
 
     public void removeUnreachableStates() {
@@ -264,190 +504,252 @@ public class Automaton {
 
         while (!stack.isEmpty()) {
             State current = stack.pop();
-            for (Translation t : translations) {
-                if (t.getFromState().equals(current)) {
-                    if (!reachable.contains(t.getToState())) {
-                        reachable.add(t.getToState());
-                        stack.push(t.getToState());
-                    }
+            for (Translation t : getOutgoingTranslations(current)) {
+                if (reachable.add(t.getToState())) {
+                    stack.push(t.getToState());
                 }
             }
         }
 
-        this.states.retainAll(reachable);
+        if (this.states.retainAll(reachable)) {
+            this.closures.clear();
+            this.modCount++;
+        }
         
-        this.translations.removeIf(t -> !reachable.contains(t.getFromState()) || !reachable.contains(t.getToState()));
+        if (this.translations.removeIf(t -> !reachable.contains(t.getFromState()) || !reachable.contains(t.getToState()))) {
+            rebuildIndex();
+        }
+        if (this.outgoing.keySet().retainAll(reachable)) {
+            this.conflicts = this.outgoing.values().stream().mapToInt(OutgoingEdges::getConflicts).sum();
+        }
     }
 
     public Set<String> getAlphabet() {
-        Set<String> alphabet = new HashSet<>();
-        for (Translation t : translations) {
-            if (!isEpsilon(t.getSymbol())) {
-                String[] parts = t.getSymbol().split("[ ,]+");
-                for (String s : parts) {
-                    if (!s.isEmpty()) alphabet.add(s);
-                }
-            }
+        Set<String> alphabet = new java.util.LinkedHashSet<>();
+        for (int id : getAlphabetIds()) {
+            alphabet.add(this.symbolTable.nameOf(id));
         }
         return alphabet;
     }
 
+    public int[] getAlphabetIds() {
+        BitSet used = new BitSet(this.symbolTable.size());
+        for (OutgoingEdges edges : this.outgoing.values()) {
+            for (int id : edges.getSymbols()) {
+                used.set(id);
+            }
+        }
+        return used.stream().toArray();
+    }
+
     public void determinize() {
+        determinize(null);
+    }
+
+    public void determinize(ForkJoinPool pool) {
         if (states.isEmpty()) {
             return;
         }
         removeEpsilonTransitions();
-        List<State> dfaStates = new ArrayList<>();
+        if (states.stream().noneMatch(State::isInitial)) {
+            return;
+        }
+        PhaseRecorder recorder = new PhaseRecorder(Phase.SUBSET_CONSTRUCTION, this.states.size(), this.metricsListeners);
+        SubsetConstruction construction = new SubsetConstruction(this);
+        SubsetConstruction.Result result = pool == null ? construction.run(recorder) : construction.runParallel(pool, recorder);
+        int[] alphabet = construction.getAlphabet();
+        int k = alphabet.length;
+
+        List<State> dfaStates = new ArrayList<>(result.stateCount);
+        for (int d = 0; d < result.stateCount; d++) {
+            State q = new State("Q" + d, d == 0, result.accepting.get(d), 0, 0);
+            q.setPatterns(result.patterns[d]);
+            dfaStates.add(q);
+        }
         List<Translation> dfaTranslations = new ArrayList<>();
-        Map<Set<State>, State> setsToStates = new HashMap<>();
-        Queue<Set<State>> queue = new LinkedList<>();
-        State initialNFA = states.stream().filter(State::isInitial).findFirst().orElse(null);
-        Set<State> startSet = new HashSet<>();
-        startSet.add(initialNFA);
-        State startDFA = new State("Q0", true, initialNFA.isAccepting(), 0, 0);
-        dfaStates.add(startDFA);
-        setsToStates.put(startSet, startDFA);
-        queue.add(startSet);
-        Set<String> alphabet = getAlphabet();
-        while (!queue.isEmpty()) {
-            Set<State> currentSet = queue.poll();
-            State fromDFA = setsToStates.get(currentSet);
-            for (String symbol : alphabet) {
-                Set<State> nextSet = new HashSet<>();
-                for (State nfaState : currentSet) {
-                    for (Translation t : translations) {
-                        if (t.getFromState().equals(nfaState) && t.getSymbol().contains(symbol)) {
-                            nextSet.add(t.getToState());
-                        }
-                    }
-                }
-                if (!nextSet.isEmpty()) {
-                    if (!setsToStates.containsKey(nextSet)) {
-                        boolean isAcc = nextSet.stream().anyMatch(State::isAccepting);
-                        State newState = new State("Q" + dfaStates.size(), false, isAcc, 0, 0);
-                        dfaStates.add(newState);
-                        setsToStates.put(nextSet, newState);
-                        queue.add(nextSet);
-                    }
-                    dfaTranslations.add(new Translation(symbol, fromDFA, setsToStates.get(nextSet)));
+        for (int d = 0; d < result.stateCount; d++) {
+            for (int a = 0; a < k; a++) {
+                int target = result.delta[d * k + a];
+                if (target >= 0) {
+                    dfaTranslations.add(new Translation(this.symbolTable, new int[] { alphabet[a] }, dfaStates.get(d), dfaStates.get(target)));
                 }
             }
         }
         this.states = dfaStates;
         this.translations = dfaTranslations;
+        rebuildIndex();
         reorderStates();
+        recorder.finish(this.states.size());
     }
 
     public boolean isDeterministic() {
-        if (states.isEmpty()) {
-            return true;
-        }
-        for (State s : states) {
-            Set<String> seenSymbols = new HashSet<>();
-            for (Translation t : translations) {
-                if (t.getFromState().equals(s)) {
-                    if (isEpsilon(t.getSymbol())) {
-                        return false;
-                    }
-                    String[] symbols = t.getSymbol().split("[ ,]+");
-                    for (String sym : symbols) {
-                        if (seenSymbols.contains(sym)) {
-                            return false;
-                        }
-                        seenSymbols.add(sym);
-                    }
-                }
-            }
-        }
-        return true;
+        return states.isEmpty() || this.conflicts == 0;
+    }
+
+    // Number of (state, symbol) pairs with more than one target, counting ε as a symbol.
+    public int getConflictCount() {
+        return this.conflicts;
     }
 
     public void minimize() {
         if (states.isEmpty()) return;
         if (!isDeterministic()) determinize();
+        if (states.stream().anyMatch(State::isInitial)) removeUnreachableStates();
 
+        PhaseRecorder recorder = new PhaseRecorder(Phase.MINIMIZATION, this.states.size(), this.metricsListeners);
+        int[] blocks = minimalPartition(recorder);
         Map<State, Integer> partition = new HashMap<>();
-        for (State s : states) {
-            partition.put(s, s.isAccepting() ? 1 : 0);
-        }
-
-        Set<String> alphabet = getAlphabet();
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            Map<State, List<Integer>> signatures = new HashMap<>();
-            for (State s : states) {
-                List<Integer> signature = new ArrayList<>();
-                signature.add(partition.get(s));
-                for (String sym : alphabet) {
-                    State target = null;
-                    for (Translation t : translations) {
-                        if (t.getFromState().equals(s) && t.getSymbol().contains(sym)) {
-                            target = t.getToState();
-                            break;
-                        }
-                    }
-                    signature.add(target == null ? -1 : partition.get(target));
-                }
-                signatures.put(s, signature);
-            }
-
-            Map<List<Integer>, Integer> sigToNewGroup = new HashMap<>();
-            Map<State, Integer> nextPartition = new HashMap<>();
-            int nextId = 0;
-            for (State s : states) {
-                List<Integer> sig = signatures.get(s);
-                if (!sigToNewGroup.containsKey(sig)) sigToNewGroup.put(sig, nextId++);
-                nextPartition.put(s, sigToNewGroup.get(sig));
-            }
-            if (new HashSet<>(nextPartition.values()).size() != new HashSet<>(partition.values()).size()) {
-                partition = nextPartition;
-                changed = true;
-            } else changed = false;
+        for (int i = 0; i < states.size(); i++) {
+            partition.put(states.get(i), blocks[i]);
         }
 
         Map<Integer, State> groupToState = new HashMap<>();
         List<State> newStates = new ArrayList<>();
-        final Map<State, Integer> finalPartition = partition;
         for (State s : states) {
             int group = partition.get(s);
-            if (!groupToState.containsKey(group)) {
-                boolean isInit = states.stream().filter(st -> finalPartition.get(st) == group).anyMatch(State::isInitial);
-                State newState = new State("m" + group, isInit, s.isAccepting(), 0, 0);
+            State newState = groupToState.get(group);
+            if (newState == null) {
+                newState = new State("m" + group, false, s.isAccepting(), 0, 0);
+                newState.setPatterns(s.getPatterns());
                 groupToState.put(group, newState);
                 newStates.add(newState);
             }
+            if (s.isInitial()) {
+                newState.setInitial(true);
+            }
         }
 
         List<Translation> newTranslations = new ArrayList<>();
         for (Translation t : translations) {
             State from = groupToState.get(partition.get(t.getFromState()));
             State to = groupToState.get(partition.get(t.getToState()));
-
-            Translation existing = null;
-            for (Translation nt : newTranslations) {
-                if (nt.getFromState() == from && nt.getToState() == to) {
-                    existing = nt;
-                    break;
-                }
-            }
-            if (existing != null){
-                existing.addSymbol(t.getSymbol());
-            } else {
-                newTranslations.add(new Translation(t.getSymbol(), from, to));
-            }
+            newTranslations.add(new Translation(this.symbolTable, t.getSymbols(), from, to));
         }
         this.states = newStates;
         this.translations = newTranslations;
+        removeDuplicateTranslations();
         reorderStates();
+        // The refinement just run is the minimality check; with unreachable states removed the
+        // result is minimal, so isMinimized() need not refine it again.
+        if (states.stream().anyMatch(State::isInitial)) {
+            this.minimal = true;
+            this.minimalModCount = this.modCount;
+        }
+        recorder.finish(this.states.size());
+    }
+
+    public CompiledDfa compile() {
+        if (!isDeterministic()) {
+            throw new IllegalStateException("Only deterministic automata can be compiled");
+        }
+        int n = states.size();
+        Map<State, Integer> ids = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ids.put(states.get(i), i);
+        }
+
+        int[] alphabet = getAlphabetIds();
+        Map<List<Integer>, Integer> columnToClass = new HashMap<>();
+        List<int[]> classColumns = new ArrayList<>();
+        int maxChar = -1;
+        int[] symbolClass = new int[alphabet.length];
+        for (int a = 0; a < alphabet.length; a++) {
+            int sym = alphabet[a];
+            int[] column = new int[n];
+            for (int i = 0; i < n; i++) {
+                State target = getTarget(states.get(i), sym);
+                column[i] = target == null ? -1 : ids.getOrDefault(target, -1);
+            }
+            List<Integer> key = Arrays.stream(column).boxed().toList();
+            Integer cls = columnToClass.get(key);
+            if (cls == null) {
+                cls = classColumns.size();
+                columnToClass.put(key, cls);
+                classColumns.add(column);
+            }
+            symbolClass[a] = cls;
+            maxChar = Math.max(maxChar, this.symbolTable.nameOf(sym).charAt(0));
+        }
+
+        int[] classOf = new int[maxChar + 1];
+        Arrays.fill(classOf, -1);
+        for (int a = 0; a < alphabet.length; a++) {
+            classOf[this.symbolTable.nameOf(alphabet[a]).charAt(0)] = symbolClass[a];
+        }
+
+        int classCount = classColumns.size();
+        int[] table = new int[n * classCount];
+        for (int c = 0; c < classCount; c++) {
+            int[] column = classColumns.get(c);
+            for (int i = 0; i < n; i++) {
+                table[i * classCount + c] = column[i];
+            }
+        }
+
+        BitSet accepting = new BitSet(n);
+        BitSet[] patterns = new BitSet[n];
+        int initial = -1;
+        for (int i = 0; i < n; i++) {
+            State s = states.get(i);
+            if (s.isAccepting()) {
+                accepting.set(i);
+                patterns[i] = s.getPatterns();
+            }
+            if (initial < 0 && s.isInitial()) {
+                initial = i;
+            }
+        }
+        return new CompiledDfa(classOf, classCount, table, accepting, patterns, initial, n);
     }
 
     public boolean isMinimized() {
         if (!isDeterministic()) {
             return false;
         }
+        if (this.minimalModCount != this.modCount) {
+            this.minimal = checkCurrentMinimality();
+            this.minimalModCount = this.modCount;
+        }
+        return this.minimal;
+    }
+
+    // The minimality answer if it is known for the current version of the automaton, or null when
+    // it would need a fresh check; callers that cannot block compute it on a copy and hand the
+    // result back through recordMinimized.
+    public Boolean getKnownMinimized() {
+        if (!isDeterministic()) {
+            return false;
+        }
+        return this.minimalModCount == this.modCount ? this.minimal : null;
+    }
 
-        return checkCurrentMinimality();
+    public int getModCount() {
+        return this.modCount;
+    }
+
+    public void recordMinimized(int modCount, boolean minimal) {
+        if (modCount == this.modCount) {
+            this.minimal = minimal;
+            this.minimalModCount = modCount;
+        }
+    }
+
+    private int[] minimalPartition(PhaseRecorder recorder) {
+        if (this.partition == null || this.partitionModCount != this.modCount) {
+            CompiledDfa dfa = compile();
+            int n = states.size();
+            int[] initialBlocks = new int[n];
+            Map<BitSet, Integer> patternBlocks = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                State s = states.get(i);
+                if (s.isAccepting()) {
+                    initialBlocks[i] = patternBlocks.computeIfAbsent(s.getPatterns(), p -> patternBlocks.size() + 1);
+                }
+            }
+            this.partition = Hopcroft.refine(n, dfa.getClassCount(), dfa.getTable(), initialBlocks, recorder);
+            this.partitionModCount = this.modCount;
+        }
+        return this.partition;
     }
 
     private boolean checkCurrentMinimality() {
@@ -461,57 +763,19 @@ public class Automaton {
         });
         while (!stack.isEmpty()) {
             State current = stack.pop();
-            for (Translation t : translations) {
-                if (t.getFromState().equals(current)) {
-                    if (!reachable.contains(t.getToState())) {
-                        reachable.add(t.getToState());
-                        stack.push(t.getToState());
-                    }
+            for (Translation t : getOutgoingTranslations(current)) {
+                if (reachable.add(t.getToState())) {
+                    stack.push(t.getToState());
                 }
             }
         }
         if (reachable.size() < states.size()) return false;
 
-        Map<State, Integer> partition = new HashMap<>();
-        for (State s : states) partition.put(s, s.isAccepting() ? 1 : 0);
-
-        Set<String> alphabet = getAlphabet();
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            Map<State, List<Integer>> signatures = new HashMap<>();
-            for (State s : states) {
-                List<Integer> signature = new ArrayList<>();
-                signature.add(partition.get(s));
-                for (String sym : alphabet) {
-                    State target = getTarget(s, sym);
-                    signature.add(target == null ? -1 : partition.get(target));
-                }
-                signatures.put(s, signature);
-            }
-            Map<List<Integer>, Integer> sigToNewGroup = new HashMap<>();
-            Map<State, Integer> nextPartition = new HashMap<>();
-            int nextId = 0;
-            for (State s : states) {
-                List<Integer> sig = signatures.get(s);
-                if (!sigToNewGroup.containsKey(sig)) sigToNewGroup.put(sig, nextId++);
-                nextPartition.put(s, sigToNewGroup.get(sig));
-            }
-            if (new HashSet<>(nextPartition.values()).size() != new HashSet<>(partition.values()).size()) {
-                partition = nextPartition;
-                changed = true;
-            } else changed = false;
-        }
-
-        return new HashSet<>(partition.values()).size() == states.size();
+        return Arrays.stream(minimalPartition(null)).max().orElse(-1) == states.size() - 1;
     }
 
-    private State getTarget(State s, String sym) {
-        for (Translation t : translations) {
-            if (t.getFromState().equals(s) && t.getSymbol().contains(sym)) {
-                return t.getToState();
-            }
-        }
-        return null;
+    private State getTarget(State s, int sym) {
+        Set<State> targets = getTargets(s, sym);
+        return targets.isEmpty() ? null : targets.iterator().next();
     }
 }
@@ -0,0 +1,296 @@
+package Automaton;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Binary automaton files, little-endian, every section 8-byte aligned:
+//
+//   header     magic "AUTM", u16 version, u16 flags, then the counts, the initial state
+//              (-1 for none) and the offset of every section (0 for an absent one)
+//   symbols    per symbol id: u16 length, UTF-16 chars; ids 0 and 1 are ε and "..."
+//   rows       u32[stateCount + 1], CSR row starts into the edge array
+//   edges      per edge: u32 symbol, u32 target, sorted by symbol then target in each row
+//   accepting  u64[(stateCount + 63) / 64]
+//   patterns   optional: u32[stateCount + 1] word starts, then the u64 words of each set
+//   layout     optional: i32 x, i32 y per state
+//
+// States are numbered by their position in the automaton and named q0, q1, ... on load.
+public final class AutomatonFile {
+    static final int MAGIC = 0x4D545541;
+    static final int VERSION = 1;
+    static final int DETERMINISTIC = 1;
+    static final int LAYOUT = 2;
+    static final int PATTERNS = 4;
+
+    static final int HEADER_SIZE = 56;
+    static final int STATE_COUNT = 8;
+    static final int EDGE_COUNT = 12;
+    static final int SYMBOL_COUNT = 16;
+    static final int INITIAL = 20;
+    static final int SYMBOLS_OFFSET = 24;
+    static final int ROWS_OFFSET = 28;
+    static final int EDGES_OFFSET = 32;
+    static final int ACCEPTING_OFFSET = 36;
+    static final int PATTERNS_OFFSET = 40;
+    static final int LAYOUT_OFFSET = 44;
+
+    private AutomatonFile() {
+    }
+
+    public static void write(Automaton automaton, Path file) throws IOException {
+        write(automaton, file, true);
+    }
+
+    public static void write(Automaton automaton, Path file, boolean layout) throws IOException {
+        List<State> states = automaton.getStates();
+        int n = states.size();
+        Map<State, Integer> ids = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ids.put(states.get(i), i);
+        }
+
+        int[] rows = new int[n + 1];
+        int[] edges = new int[16];
+        int edgeCount = 0;
+        boolean deterministic = true;
+        boolean patterns = false;
+        int initial = -1;
+        for (int i = 0; i < n; i++) {
+            State s = states.get(i);
+            // getSymbols leaves out ε and "...", which come first in the row as they have the
+            // smallest ids. The index merges their targets, so they are read off the translations
+            // to keep each edge's own symbol.
+            int[] symbols = automaton.getSymbols(s);
+            for (int k = -2; k < symbols.length; k++) {
+                int sym = k == -2 ? SymbolTable.EPSILON : k == -1 ? SymbolTable.ELLIPSIS : symbols[k];
+                Stream<State> reached = k < 0
+                        ? automaton.getOutgoingTranslations(s).stream().filter(t -> t.hasSymbol(sym)).map(Translation::getToState)
+                        : automaton.getTargets(s, sym).stream();
+                int[] targets = reached
+                        .map(ids::get)
+                        .filter(t -> t != null)
+                        .mapToInt(Integer::intValue)
+                        .sorted()
+                        .distinct()
+                        .toArray();
+                deterministic &= targets.length == 0 || (k >= 0 && targets.length == 1);
+                for (int t : targets) {
+                    if (2 * edgeCount + 2 > edges.length) {
+                        edges = Arrays.copyOf(edges, edges.length * 2);
+                    }
+                    edges[2 * edgeCount] = sym;
+                    edges[2 * edgeCount + 1] = t;
+                    edgeCount++;
+                }
+            }
+            rows[i + 1] = edgeCount;
+            patterns |= s.isAccepting() && s.hasPatterns();
+            if (initial < 0 && s.isInitial()) {
+                initial = i;
+            }
+        }
+
+        SymbolTable table = automaton.getSymbolTable();
+        int symbolCount = table.size();
+        long symbolBytes = 0;
+        for (int id = 0; id < symbolCount; id++) {
+            symbolBytes += 2 + 2L * table.nameOf(id).length();
+        }
+        long[][] patternWords = new long[n][];
+        int totalWords = 0;
+        if (patterns) {
+            for (int i = 0; i < n; i++) {
+                State s = states.get(i);
+                patternWords[i] = s.isAccepting() ? s.getPatterns().toLongArray() : new long[0];
+                totalWords += patternWords[i].length;
+            }
+        }
+
+        long symbolsOffset = HEADER_SIZE;
+        long rowsOffset = align(symbolsOffset + symbolBytes);
+        long edgesOffset = align(rowsOffset + 4L * (n + 1));
+        long acceptingOffset = align(edgesOffset + 8L * edgeCount);
+        long end = align(acceptingOffset + 8L * ((n + 63) / 64));
+        long patternsOffset = 0;
+        if (patterns) {
+            patternsOffset = end;
+            end = align(patternsOffset + 4L * (n + 1)) + 8L * totalWords;
+        }
+        long layoutOffset = 0;
+        if (layout) {
+            layoutOffset = end;
+            end = layoutOffset + 8L * n;
+        }
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Automaton too large for the binary format: " + end + " bytes");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) end).order(ByteOrder.LITTLE_ENDIAN);
+        int flags = (deterministic ? DETERMINISTIC : 0) | (layout ? LAYOUT : 0) | (patterns ? PATTERNS : 0);
+        out.putInt(MAGIC).putShort((short) VERSION).putShort((short) flags);
+        out.putInt(n).putInt(edgeCount).putInt(symbolCount).putInt(initial);
+        out.putInt((int) symbolsOffset).putInt((int) rowsOffset).putInt((int) edgesOffset).putInt((int) acceptingOffset);
+        out.putInt((int) patternsOffset).putInt((int) layoutOffset);
+
+        out.position((int) symbolsOffset);
+        for (int id = 0; id < symbolCount; id++) {
+            String name = table.nameOf(id);
+            out.putShort((short) name.length());
+            for (int c = 0; c < name.length(); c++) {
+                out.putChar(name.charAt(c));
+            }
+        }
+
+        out.position((int) rowsOffset);
+        out.asIntBuffer().put(rows);
+        out.position((int) edgesOffset);
+        out.asIntBuffer().put(edges, 0, 2 * edgeCount);
+
+        long[] accepting = new long[(n + 63) / 64];
+        for (int i = 0; i < n; i++) {
+            if (states.get(i).isAccepting()) {
+                accepting[i >>> 6] |= 1L << i;
+            }
+        }
+        out.position((int) acceptingOffset);
+        out.asLongBuffer().put(accepting);
+
+        if (patterns) {
+            out.position((int) patternsOffset);
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                out.putInt(start);
+                start += patternWords[i].length;
+            }
+            out.putInt(start);
+            out.position((int) align(patternsOffset + 4L * (n + 1)));
+            for (long[] words : patternWords) {
+                for (long w : words) {
+                    out.putLong(w);
+                }
+            }
+        }
+
+        if (layout) {
+            out.position((int) layoutOffset);
+            for (State s : states) {
+                out.putInt(s.getX()).putInt(s.getY());
+            }
+        }
+
+        // Written next to the target and moved over it, rather than truncating the target in place:
+        // the target may still be mapped by a MappedAutomaton, which Windows refuses to truncate.
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                out.clear();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Matching straight from the mapped file, without building states or translations.
+    public static MappedAutomaton map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an automaton file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedAutomaton(buffer.order(ByteOrder.LITTLE_ENDIAN), file);
+        }
+    }
+
+    // Loads the file into an editable automaton. The bytes are copied to the heap rather than
+    // mapped, so no mapping outlives the call and the file can be saved over straight away.
+    public static Automaton read(Path file) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an automaton file: " + file);
+            }
+            bytes = ByteBuffer.allocate((int) channel.size());
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes) < 0) {
+                    throw new IOException("Corrupt automaton file: " + file);
+                }
+            }
+        }
+        MappedAutomaton mapped = new MappedAutomaton(bytes.order(ByteOrder.LITTLE_ENDIAN), file);
+        ByteBuffer in = mapped.buffer();
+        int n = mapped.getStateCount();
+        boolean layout = (in.getShort(6) & LAYOUT) != 0;
+        int layoutOffset = in.getInt(LAYOUT_OFFSET);
+
+        Automaton automaton = new Automaton();
+        List<State> states = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int x = layout ? in.getInt(layoutOffset + 8 * i) : 0;
+            int y = layout ? in.getInt(layoutOffset + 8 * i + 4) : 0;
+            State s = new State("q" + i, i == mapped.getInitialState(), mapped.isAccepting(i), x, y);
+            if (s.isAccepting()) {
+                s.setPatterns(mapped.getPatterns(i));
+            }
+            states.add(s);
+        }
+        automaton.addState(states);
+
+        String[] names = mapped.symbolNames();
+        int[] symbolIds = new int[names.length];
+        for (int id = 0; id < names.length; id++) {
+            symbolIds[id] = automaton.getSymbolTable().intern(names[id]);
+        }
+        int edgesOffset = in.getInt(EDGES_OFFSET);
+        for (int i = 0; i < n; i++) {
+            int from = mapped.rowStart(i);
+            int to = mapped.rowStart(i + 1);
+            Map<Integer, List<Integer>> byTarget = new HashMap<>();
+            List<Integer> order = new ArrayList<>();
+            for (int e = from; e < to; e++) {
+                int sym = in.getInt(edgesOffset + 8 * e);
+                int target = in.getInt(edgesOffset + 8 * e + 4);
+                if (sym < 0 || sym >= names.length || target < 0 || target >= n) {
+                    throw new IOException("Corrupt automaton file: " + file);
+                }
+                byTarget.computeIfAbsent(target, t -> {
+                    order.add(t);
+                    return new ArrayList<>();
+                }).add(symbolIds[sym]);
+            }
+            for (int target : order) {
+                int[] symbols = byTarget.get(target).stream().mapToInt(Integer::intValue).filter(id -> id >= 0).toArray();
+                automaton.addTranslation(states.get(i), states.get(target), symbols);
+            }
+        }
+        return automaton;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -0,0 +1,122 @@
+package Automaton;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Running totals over every phase reported to it; register() publishes one shared instance
+// on the platform MBean server as Automaton:type=Metrics.
+public final class AutomatonMetrics implements MetricsListener, AutomatonMetricsMXBean {
+    private static AutomatonMetrics registered;
+
+    private final Map<Phase, Long> counts = new EnumMap<>(Phase.class);
+    private final Map<Phase, Long> nanos = new EnumMap<>(Phase.class);
+    private PhaseMetrics last;
+    private long subsetStates;
+    private int queueHighWater;
+    private long refinementRounds;
+    private long closureHits;
+    private long closureMisses;
+    private long allocatedBytes;
+
+    public static synchronized AutomatonMetrics register() {
+        if (registered == null) {
+            AutomatonMetrics metrics = new AutomatonMetrics();
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                server.registerMBean(metrics, new ObjectName("Automaton:type=Metrics"));
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot register the metrics MBean", e);
+            }
+            registered = metrics;
+        }
+        return registered;
+    }
+
+    @Override
+    public synchronized void phaseCompleted(PhaseMetrics metrics) {
+        this.counts.merge(metrics.getPhase(), 1L, Long::sum);
+        this.nanos.merge(metrics.getPhase(), metrics.getDurationNanos(), Long::sum);
+        this.last = metrics;
+        this.subsetStates += metrics.getSubsetStates();
+        this.queueHighWater = Math.max(this.queueHighWater, metrics.getQueueHighWater());
+        this.refinementRounds += metrics.getRefinementRounds();
+        this.closureHits += metrics.getClosureHits();
+        this.closureMisses += metrics.getClosureMisses();
+        if (metrics.getAllocatedBytes() > 0) {
+            this.allocatedBytes += metrics.getAllocatedBytes();
+        }
+    }
+
+    public synchronized PhaseMetrics getLast() {
+        return this.last;
+    }
+
+    @Override
+    public synchronized long getPhasesCompleted() {
+        return this.counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public synchronized Map<String, Long> getCountByPhase() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.counts.forEach((phase, count) -> result.put(phase.name(), count));
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, Double> getTotalMillisByPhase() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        this.nanos.forEach((phase, total) -> result.put(phase.name(), total / 1e6));
+        return result;
+    }
+
+    @Override
+    public synchronized String getLastPhase() {
+        return this.last == null ? "" : this.last.toString();
+    }
+
+    @Override
+    public synchronized long getSubsetStatesCreated() {
+        return this.subsetStates;
+    }
+
+    @Override
+    public synchronized int getQueueHighWater() {
+        return this.queueHighWater;
+    }
+
+    @Override
+    public synchronized long getRefinementRounds() {
+        return this.refinementRounds;
+    }
+
+    @Override
+    public synchronized double getClosureCacheHitRate() {
+        long lookups = this.closureHits + this.closureMisses;
+        return lookups == 0 ? 0 : (double) this.closureHits / lookups;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    @Override
+    public synchronized void reset() {
+        this.counts.clear();
+        this.nanos.clear();
+        this.last = null;
+        this.subsetStates = 0;
+        this.queueHighWater = 0;
+        this.refinementRounds = 0;
+        this.closureHits = 0;
+        this.closureMisses = 0;
+        this.allocatedBytes = 0;
+    }
+}
@@ -0,0 +1,25 @@
+package Automaton;
+
+import java.util.Map;
+
+public interface AutomatonMetricsMXBean {
+    long getPhasesCompleted();
+
+    Map<String, Long> getCountByPhase();
+
+    Map<String, Double> getTotalMillisByPhase();
+
+    String getLastPhase();
+
+    long getSubsetStatesCreated();
+
+    int getQueueHighWater();
+
+    long getRefinementRounds();
+
+    double getClosureCacheHitRate();
+
+    long getAllocatedBytes();
+
+    void reset();
+}
@@ -0,0 +1,107 @@
+package Automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public final class BatchResult {
+    private static final int BLOCK = 4096;
+    // Words read from a stream before a chunk is matched; a whole number of blocks and of longs.
+    private static final int CHUNK = 16 * BLOCK;
+
+    private final List<String> words;
+    private final BitSet accepted;
+    private final int acceptedCount;
+
+    private BatchResult(List<String> words, BitSet accepted) {
+        this.words = words;
+        this.accepted = accepted;
+        this.acceptedCount = accepted.cardinality();
+    }
+
+    // Blocks finish in any order, so reports go through a lock that drops any count not larger
+    // than the last one reported; progress then only ever moves forwards.
+    public static BatchResult evaluate(WordMatcher matcher, List<String> words, IntConsumer progress) {
+        int n = words.size();
+        long[] bits = new long[(n + 63) >>> 6];
+        AtomicInteger done = new AtomicInteger();
+        int[] reported = new int[1];
+        match(matcher, words, 0, n, bits, count -> {
+            int total = done.addAndGet(count);
+            if (progress != null) {
+                synchronized (reported) {
+                    if (total > reported[0]) {
+                        reported[0] = total;
+                        progress.accept(total);
+                    }
+                }
+            }
+        });
+        return new BatchResult(words, BitSet.valueOf(bits));
+    }
+
+    // Reads the stream a chunk at a time and matches each chunk in parallel before reading the
+    // next, so matching starts with the first chunk instead of after the whole stream is listed.
+    public static BatchResult evaluate(WordMatcher matcher, Stream<String> words) {
+        List<String> all = new ArrayList<>();
+        long[] bits = new long[0];
+        Iterator<String> it = words.iterator();
+        while (it.hasNext()) {
+            int from = all.size();
+            while (it.hasNext() && all.size() - from < CHUNK) {
+                all.add(it.next());
+            }
+            int needed = (all.size() + 63) >>> 6;
+            if (needed > bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(needed, 2 * bits.length));
+            }
+            match(matcher, all, from, all.size(), bits, count -> { });
+        }
+        return new BatchResult(all, BitSet.valueOf(bits));
+    }
+
+    // Each block writes its own range of longs, so the parallel workers never share a word;
+    // from must be a multiple of 64 for that to hold. blockDone gets each block's word count.
+    private static void match(WordMatcher matcher, List<String> words, int from, int to, long[] bits, IntConsumer blockDone) {
+        IntStream.range(0, (to - from + BLOCK - 1) / BLOCK).parallel().forEach(block -> {
+            int start = from + block * BLOCK;
+            int end = Math.min(to, start + BLOCK);
+            for (int i = start; i < end; i++) {
+                if (matcher.matches(words.get(i))) {
+                    bits[i >>> 6] |= 1L << i;
+                }
+            }
+            blockDone.accept(end - start);
+        });
+    }
+
+    public int getWordCount() {
+        return this.words.size();
+    }
+
+    public String getWord(int index) {
+        return this.words.get(index);
+    }
+
+    public boolean isAccepted(int index) {
+        return this.accepted.get(index);
+    }
+
+    public BitSet getAccepted() {
+        return (BitSet) this.accepted.clone();
+    }
+
+    public int getAcceptedCount() {
+        return this.acceptedCount;
+    }
+
+    public int getRejectedCount() {
+        return this.words.size() - this.acceptedCount;
+    }
+}
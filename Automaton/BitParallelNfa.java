@@ -0,0 +1,321 @@
+package Automaton;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class BitParallelNfa implements WordMatcher {
+    private final State[] states;
+    private final int words;
+    private final int[] classOf;
+    private final int[] epsilonStart;
+    private final int[] epsilon;
+    private final int[] edgeStart;
+    private final int[] edgeSymbol;
+    private final int[] targetStart;
+    private final int[] target;
+    private final long[] initialMask;
+    private final long[] acceptMask;
+    private final BitSet[] patterns;
+    private final ThreadLocal<Scratch> scratch;
+
+    // Successors are kept sparse: each state's outgoing edges sorted by symbol with their raw
+    // targets, and its ε-targets. A step closes the targets it reaches over ε as it goes, so
+    // memory follows the edges instead of one state-sized mask per edge.
+    BitParallelNfa(Automaton automaton) {
+        List<State> list = automaton.getStates();
+        int n = list.size();
+        this.states = list.toArray(new State[0]);
+        this.words = Math.max(1, (n + 63) >>> 6);
+
+        Map<State, Integer> ids = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ids.put(this.states[i], i);
+        }
+
+        SymbolTable table = automaton.getSymbolTable();
+        int[] alphabet = automaton.getAlphabetIds();
+        int maxChar = -1;
+        for (int id : alphabet) {
+            maxChar = Math.max(maxChar, table.nameOf(id).charAt(0));
+        }
+        this.classOf = new int[maxChar + 1];
+        Arrays.fill(this.classOf, -1);
+        for (int id : alphabet) {
+            this.classOf[table.nameOf(id).charAt(0)] = id;
+        }
+
+        this.epsilonStart = new int[n + 1];
+        IntList epsilons = new IntList();
+        for (int i = 0; i < n; i++) {
+            this.epsilonStart[i] = epsilons.size;
+            for (State t : automaton.getEpsilonTargets(this.states[i])) {
+                Integer id = ids.get(t);
+                if (id != null) {
+                    epsilons.add(id);
+                }
+            }
+        }
+        this.epsilonStart[n] = epsilons.size;
+        this.epsilon = epsilons.toArray();
+
+        this.edgeStart = new int[n + 1];
+        IntList symbols = new IntList();
+        IntList targetStarts = new IntList();
+        IntList targets = new IntList();
+        for (int i = 0; i < n; i++) {
+            this.edgeStart[i] = symbols.size;
+            int[] row = automaton.getSymbols(this.states[i]).clone();
+            Arrays.sort(row);
+            for (int sym : row) {
+                symbols.add(sym);
+                targetStarts.add(targets.size);
+                for (State t : automaton.getTargets(this.states[i], sym)) {
+                    Integer id = ids.get(t);
+                    if (id != null) {
+                        targets.add(id);
+                    }
+                }
+            }
+        }
+        this.edgeStart[n] = symbols.size;
+        targetStarts.add(targets.size);
+        this.edgeSymbol = symbols.toArray();
+        this.targetStart = targetStarts.toArray();
+        this.target = targets.toArray();
+
+        this.initialMask = new long[this.words];
+        this.acceptMask = new long[this.words];
+        this.patterns = new BitSet[n];
+        int[] stack = new int[Math.max(1, n)];
+        boolean hasInitial = false;
+        for (int i = 0; i < n; i++) {
+            if (!hasInitial && this.states[i].isInitial()) {
+                addClosure(this.initialMask, i, stack);
+                hasInitial = true;
+            }
+            if (this.states[i].isAccepting()) {
+                this.acceptMask[i >>> 6] |= 1L << i;
+                if (this.states[i].hasPatterns()) {
+                    this.patterns[i] = this.states[i].getPatterns();
+                }
+            }
+        }
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(this.words, n));
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        long[] last = run(input);
+        return last != null && intersects(last, this.acceptMask);
+    }
+
+    @Override
+    public BitSet matchingPatterns(CharSequence input) {
+        long[] last = run(input);
+        return last == null ? new BitSet() : patternsOf(last);
+    }
+
+    // Runs on this thread's two scratch masks; the returned mask is only valid until the next run.
+    private long[] run(CharSequence input) {
+        Scratch scratch = this.scratch.get();
+        long[] current = scratch.current;
+        long[] next = scratch.next;
+        System.arraycopy(this.initialMask, 0, current, 0, this.words);
+        for (int i = 0, n = input.length(); i < n; i++) {
+            if (!step(current, next, symbolOf(input.charAt(i)), scratch.stack)) {
+                return null;
+            }
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+        return current;
+    }
+
+    public Set<State> visited(CharSequence input) {
+        int[] stack = this.scratch.get().stack;
+        long[] current = this.initialMask.clone();
+        long[] next = new long[this.words];
+        long[] seen = current.clone();
+        for (int i = 0, n = input.length(); i < n; i++) {
+            if (!step(current, next, symbolOf(input.charAt(i)), stack)) {
+                break;
+            }
+            or(seen, next);
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+        Set<State> result = new HashSet<>();
+        for (int w = 0; w < this.words; w++) {
+            long bits = seen[w];
+            while (bits != 0) {
+                result.add(this.states[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    WordTrace trace(Automaton automaton, String input) {
+        int[] stack = this.scratch.get().stack;
+        int steps = input.length() + 1;
+        long[] masks = new long[Math.multiplyExact(steps, this.words)];
+        System.arraycopy(this.initialMask, 0, masks, 0, this.words);
+        long[] current = this.initialMask.clone();
+        long[] next = new long[this.words];
+        int stored = 1;
+        for (int i = 0; i < input.length() && step(current, next, symbolOf(input.charAt(i)), stack); i++) {
+            System.arraycopy(next, 0, masks, stored * this.words, this.words);
+            stored++;
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+        boolean accepted = stored == steps && isAccepting(current);
+        return new WordTrace(automaton, this.states, this.words, input,
+                stored == steps ? masks : Arrays.copyOf(masks, stored * this.words), stored, accepted);
+    }
+
+    public int getStateCount() {
+        return this.states.length;
+    }
+
+    int getWordCount() {
+        return this.words;
+    }
+
+    int getSymbolBound() {
+        int max = -1;
+        for (int id : this.classOf) {
+            max = Math.max(max, id);
+        }
+        return max + 1;
+    }
+
+    int symbolOf(char c) {
+        return c < this.classOf.length ? this.classOf[c] : -1;
+    }
+
+    long[] getInitialMask() {
+        return this.initialMask;
+    }
+
+    boolean isAccepting(long[] mask) {
+        return intersects(mask, this.acceptMask);
+    }
+
+    BitSet patternsOf(long[] mask) {
+        BitSet result = new BitSet();
+        for (int w = 0; w < this.words; w++) {
+            long bits = mask[w] & this.acceptMask[w];
+            while (bits != 0) {
+                BitSet p = this.patterns[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                if (p != null) {
+                    result.or(p);
+                }
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    boolean step(long[] current, long[] next, int symbol) {
+        return step(current, next, symbol, this.scratch.get().stack);
+    }
+
+    private boolean step(long[] current, long[] next, int symbol, int[] stack) {
+        Arrays.fill(next, 0L);
+        if (symbol < 0) {
+            return false;
+        }
+        boolean any = false;
+        for (int w = 0; w < this.words; w++) {
+            long bits = current[w];
+            while (bits != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int e = Arrays.binarySearch(this.edgeSymbol, this.edgeStart[s], this.edgeStart[s + 1], symbol);
+                if (e < 0) {
+                    continue;
+                }
+                any = true;
+                for (int k = this.targetStart[e], end = this.targetStart[e + 1]; k < end; k++) {
+                    addClosure(next, this.target[k], stack);
+                }
+            }
+        }
+        return any;
+    }
+
+    // Adds the ε-closure of state to mask. A state already in the mask had its closure added
+    // with it, so the search stops there; each state is pushed at most once per step.
+    private void addClosure(long[] mask, int state, int[] stack) {
+        if ((mask[state >>> 6] & (1L << state)) != 0) {
+            return;
+        }
+        mask[state >>> 6] |= 1L << state;
+        int top = 0;
+        stack[top++] = state;
+        while (top > 0) {
+            int s = stack[--top];
+            for (int k = this.epsilonStart[s], end = this.epsilonStart[s + 1]; k < end; k++) {
+                int t = this.epsilon[k];
+                if ((mask[t >>> 6] & (1L << t)) == 0) {
+                    mask[t >>> 6] |= 1L << t;
+                    stack[top++] = t;
+                }
+            }
+        }
+    }
+
+    // Per-thread masks for run() and the search stack for addClosure, so matching allocates
+    // nothing per word and a batch can still share the matcher across workers.
+    private static final class Scratch {
+        private final long[] current;
+        private final long[] next;
+        private final int[] stack;
+
+        Scratch(int words, int states) {
+            this.current = new long[words];
+            this.next = new long[words];
+            this.stack = new int[Math.max(1, states)];
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    private static void or(long[] into, long[] from) {
+        for (int w = 0; w < into.length; w++) {
+            into[w] |= from[w];
+        }
+    }
+
+    private static boolean intersects(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & b[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package Automaton;
+
+import java.util.concurrent.CancellationException;
+
+final class Cancellation {
+    private Cancellation() {
+    }
+
+    // Long-running algorithms poll this so that a background job can be cancelled by interrupting
+    // the thread running it.
+    static void check() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package Automaton;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+
+public final class CompiledDfa implements WordMatcher {
+    private final int[] classOf;
+    private final int classCount;
+    private final int[] table;
+    private final BitSet accepting;
+    private final BitSet[] patterns;
+    private final int initial;
+    private final int stateCount;
+
+    CompiledDfa(int[] classOf, int classCount, int[] table, BitSet accepting, BitSet[] patterns, int initial, int stateCount) {
+        this.classOf = classOf;
+        this.classCount = classCount;
+        this.table = table;
+        this.accepting = accepting;
+        this.patterns = patterns;
+        this.initial = initial;
+        this.stateCount = stateCount;
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        int state = run(input);
+        return state >= 0 && this.accepting.get(state);
+    }
+
+    @Override
+    public BitSet matchingPatterns(CharSequence input) {
+        int state = run(input);
+        return state >= 0 ? getPatterns(state) : new BitSet();
+    }
+
+    private int run(CharSequence input) {
+        int state = this.initial;
+        if (state < 0) {
+            return -1;
+        }
+        int[] classes = this.classOf;
+        int[] delta = this.table;
+        int width = this.classCount;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= classes.length) {
+                return -1;
+            }
+            int cls = classes[c];
+            if (cls < 0) {
+                return -1;
+            }
+            state = delta[state * width + cls];
+            if (state < 0) {
+                return -1;
+            }
+        }
+        return state;
+    }
+
+    public int getStateCount() {
+        return this.stateCount;
+    }
+
+    public int getClassCount() {
+        return this.classCount;
+    }
+
+    public int getInitialState() {
+        return this.initial;
+    }
+
+    public boolean isAccepting(int state) {
+        return this.accepting.get(state);
+    }
+
+    public BitSet getPatterns(int state) {
+        BitSet result = this.patterns[state];
+        return result == null ? new BitSet() : (BitSet) result.clone();
+    }
+
+    public int classOf(char c) {
+        return c < this.classOf.length ? this.classOf[c] : -1;
+    }
+
+    public int next(int state, int cls) {
+        return this.table[state * this.classCount + cls];
+    }
+
+    int[] getTable() {
+        return this.table;
+    }
+
+    int getCharBound() {
+        return this.classOf.length;
+    }
+
+    // States from which some accepting state is still reachable.
+    boolean[] liveStates() {
+        int n = this.stateCount;
+        int k = this.classCount;
+        int[] predStart = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            for (int c = 0; c < k; c++) {
+                int t = next(s, c);
+                if (t >= 0) {
+                    predStart[t + 1]++;
+                }
+            }
+        }
+        for (int i = 1; i <= n; i++) {
+            predStart[i] += predStart[i - 1];
+        }
+        int[] preds = new int[predStart[n]];
+        int[] fill = Arrays.copyOf(predStart, n);
+        for (int s = 0; s < n; s++) {
+            for (int c = 0; c < k; c++) {
+                int t = next(s, c);
+                if (t >= 0) {
+                    preds[fill[t]++] = s;
+                }
+            }
+        }
+
+        boolean[] live = new boolean[n];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int s = 0; s < n; s++) {
+            if (isAccepting(s)) {
+                live[s] = true;
+                queue.add(s);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int t = queue.poll();
+            for (int p = predStart[t]; p < predStart[t + 1]; p++) {
+                if (!live[preds[p]]) {
+                    live[preds[p]] = true;
+                    queue.add(preds[p]);
+                }
+            }
+        }
+        return live;
+    }
+}
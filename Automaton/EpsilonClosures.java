@@ -0,0 +1,168 @@
+package Automaton;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+final class EpsilonClosures {
+    private final Automaton automaton;
+    private final Map<State, Integer> slots = new HashMap<>();
+    private final List<State> bySlot = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<State, BitSet> closures = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    EpsilonClosures(Automaton automaton) {
+        this.automaton = automaton;
+    }
+
+    State stateAt(int slot) {
+        return this.bySlot.get(slot);
+    }
+
+    BitSet closureOf(State state) {
+        BitSet closure = this.closures.get(state);
+        if (closure != null) {
+            this.hits++;
+        } else {
+            this.misses++;
+            compute(state);
+            closure = this.closures.get(state);
+        }
+        return closure;
+    }
+
+    long getHits() {
+        return this.hits;
+    }
+
+    long getMisses() {
+        return this.misses;
+    }
+
+    // A cached closure contains the state exactly when its owner is an ε-ancestor of the
+    // state, so those are the only entries an ε-edge change at this state can affect.
+    void invalidate(State state) {
+        Integer slot = this.slots.get(state);
+        if (slot != null) {
+            this.closures.values().removeIf(closure -> closure.get(slot));
+        }
+    }
+
+    void remove(State state) {
+        invalidate(state);
+        Integer slot = this.slots.remove(state);
+        if (slot != null) {
+            this.bySlot.set(slot, null);
+            this.freeSlots.push(slot);
+        }
+    }
+
+    void clear() {
+        this.slots.clear();
+        this.bySlot.clear();
+        this.freeSlots.clear();
+        this.closures.clear();
+    }
+
+    private int slotOf(State state) {
+        Integer slot = this.slots.get(state);
+        if (slot == null) {
+            if (this.freeSlots.isEmpty()) {
+                slot = this.bySlot.size();
+                this.bySlot.add(state);
+            } else {
+                slot = this.freeSlots.pop();
+                this.bySlot.set(slot, state);
+            }
+            this.slots.put(state, slot);
+        }
+        return slot;
+    }
+
+    // Iterative Tarjan over the ε-graph. Components are closed in reverse topological order,
+    // so every ε-successor outside a component already has its closure when the component is
+    // finished, and all members of a cycle share one bitset.
+    private void compute(State root) {
+        Map<State, Integer> order = new HashMap<>();
+        int[] low = new int[16];
+        boolean[] onStack = new boolean[16];
+        Deque<State> path = new ArrayDeque<>();
+        Deque<State> calls = new ArrayDeque<>();
+        Deque<Iterator<State>> pending = new ArrayDeque<>();
+
+        order.put(root, 0);
+        low[0] = 0;
+        onStack[0] = true;
+        path.push(root);
+        calls.push(root);
+        pending.push(this.automaton.getEpsilonTargets(root).iterator());
+
+        while (!calls.isEmpty()) {
+            State v = calls.peek();
+            int vi = order.get(v);
+            Iterator<State> targets = pending.peek();
+            if (targets.hasNext()) {
+                State w = targets.next();
+                if (this.closures.containsKey(w)) {
+                    continue;
+                }
+                Integer wi = order.get(w);
+                if (wi == null) {
+                    int index = order.size();
+                    if (index == low.length) {
+                        low = Arrays.copyOf(low, index * 2);
+                        onStack = Arrays.copyOf(onStack, index * 2);
+                    }
+                    order.put(w, index);
+                    low[index] = index;
+                    onStack[index] = true;
+                    path.push(w);
+                    calls.push(w);
+                    pending.push(this.automaton.getEpsilonTargets(w).iterator());
+                } else if (onStack[wi]) {
+                    low[vi] = Math.min(low[vi], wi);
+                }
+                continue;
+            }
+
+            calls.pop();
+            pending.pop();
+            if (!calls.isEmpty()) {
+                int parent = order.get(calls.peek());
+                low[parent] = Math.min(low[parent], low[vi]);
+            }
+            if (low[vi] != vi) {
+                continue;
+            }
+
+            BitSet closure = new BitSet();
+            List<State> members = new ArrayList<>();
+            State w;
+            do {
+                w = path.pop();
+                onStack[order.get(w)] = false;
+                members.add(w);
+                closure.set(slotOf(w));
+            } while (w != v);
+            for (State member : members) {
+                for (State target : this.automaton.getEpsilonTargets(member)) {
+                    BitSet done = this.closures.get(target);
+                    if (done != null) {
+                        closure.or(done);
+                    }
+                }
+            }
+            for (State member : members) {
+                this.closures.put(member, closure);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package Automaton;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+final class Hopcroft {
+    private Hopcroft() {
+    }
+
+    // delta[s * k + c] is the target of s on class c, or -1 for a missing transition. Missing
+    // transitions go to an implicit sink that starts in a block of its own. The recorder, when
+    // given, receives the round count and the largest worklist size.
+    static int[] refine(int n, int k, int[] delta, int[] initialBlock, PhaseRecorder recorder) {
+        int total = n + 1;
+        int sink = n;
+
+        int[] predStart = new int[k * total + 1];
+        for (int s = 0; s < total; s++) {
+            for (int c = 0; c < k; c++) {
+                predStart[c * total + target(delta, s, c, k, n) + 1]++;
+            }
+        }
+        for (int i = 1; i < predStart.length; i++) {
+            predStart[i] += predStart[i - 1];
+        }
+        int[] preds = new int[k * total];
+        int[] fill = Arrays.copyOf(predStart, predStart.length - 1);
+        for (int s = 0; s < total; s++) {
+            for (int c = 0; c < k; c++) {
+                preds[fill[c * total + target(delta, s, c, k, n)]++] = s;
+            }
+        }
+
+        int[] elems = new int[total];
+        int[] loc = new int[total];
+        int[] blockOf = new int[total];
+        int[] first = new int[total];
+        int[] end = new int[total];
+        int[] marked = new int[total];
+        int blocks = 0;
+
+        int[] initial = Arrays.copyOf(initialBlock, total);
+        int maxInitial = 0;
+        for (int s = 0; s < n; s++) {
+            maxInitial = Math.max(maxInitial, initial[s]);
+        }
+        initial[sink] = maxInitial + 1;
+        int[] count = new int[maxInitial + 2];
+        for (int s = 0; s < total; s++) {
+            count[initial[s]]++;
+        }
+        int[] blockIdOf = new int[maxInitial + 2];
+        int pos = 0;
+        for (int b = 0; b < count.length; b++) {
+            if (count[b] == 0) {
+                blockIdOf[b] = -1;
+                continue;
+            }
+            blockIdOf[b] = blocks;
+            first[blocks] = pos;
+            end[blocks] = pos;
+            pos += count[b];
+            blocks++;
+        }
+        for (int s = 0; s < total; s++) {
+            int b = blockIdOf[initial[s]];
+            blockOf[s] = b;
+            loc[s] = end[b];
+            elems[end[b]++] = s;
+        }
+
+        boolean[] pending = new boolean[total * Math.max(k, 1)];
+        Deque<int[]> work = new ArrayDeque<>();
+        int largest = 0;
+        for (int b = 1; b < blocks; b++) {
+            if (end[b] - first[b] > end[largest] - first[largest]) {
+                largest = b;
+            }
+        }
+        for (int b = 0; b < blocks; b++) {
+            if (b == largest) {
+                continue;
+            }
+            for (int c = 0; c < k; c++) {
+                pending[b * k + c] = true;
+                work.add(new int[] { b, c });
+            }
+        }
+
+        int[] splitter = new int[total];
+        int[] touched = new int[total];
+        int rounds = 0;
+        while (!work.isEmpty()) {
+            if ((++rounds & 0x3FF) == 0) {
+                Cancellation.check();
+            }
+            if (recorder != null) {
+                recorder.queueSize(work.size());
+            }
+            int[] item = work.poll();
+            int b = item[0];
+            int c = item[1];
+            pending[b * k + c] = false;
+
+            int size = end[b] - first[b];
+            System.arraycopy(elems, first[b], splitter, 0, size);
+            int touchedCount = 0;
+            for (int i = 0; i < size; i++) {
+                int s = splitter[i];
+                for (int p = predStart[c * total + s], pe = predStart[c * total + s + 1]; p < pe; p++) {
+                    int q = preds[p];
+                    int qb = blockOf[q];
+                    int slot = first[qb] + marked[qb];
+                    if (loc[q] < slot) {
+                        continue;
+                    }
+                    int other = elems[slot];
+                    elems[slot] = q;
+                    elems[loc[q]] = other;
+                    loc[other] = loc[q];
+                    loc[q] = slot;
+                    if (marked[qb]++ == 0) {
+                        touched[touchedCount++] = qb;
+                    }
+                }
+            }
+
+            for (int t = 0; t < touchedCount; t++) {
+                int qb = touched[t];
+                int m = marked[qb];
+                marked[qb] = 0;
+                if (m == end[qb] - first[qb]) {
+                    continue;
+                }
+                int nb = blocks++;
+                first[nb] = first[qb];
+                end[nb] = first[qb] + m;
+                first[qb] = end[nb];
+                for (int i = first[nb]; i < end[nb]; i++) {
+                    blockOf[elems[i]] = nb;
+                }
+                for (int a = 0; a < k; a++) {
+                    if (pending[qb * k + a]) {
+                        pending[nb * k + a] = true;
+                        work.add(new int[] { nb, a });
+                    } else {
+                        int smaller = m <= end[qb] - first[qb] ? nb : qb;
+                        pending[smaller * k + a] = true;
+                        work.add(new int[] { smaller, a });
+                    }
+                }
+            }
+        }
+
+        if (recorder != null) {
+            recorder.refinementRounds = rounds;
+        }
+
+        int[] renumber = new int[blocks];
+        Arrays.fill(renumber, -1);
+        int next = 0;
+        int[] result = new int[n];
+        for (int s = 0; s < n; s++) {
+            int b = blockOf[s];
+            if (renumber[b] < 0) {
+                renumber[b] = next++;
+            }
+            result[s] = renumber[b];
+        }
+        return result;
+    }
+
+    private static int target(int[] delta, int s, int c, int k, int n) {
+        if (s == n) {
+            return n;
+        }
+        int t = delta[s * k + c];
+        return t < 0 ? n : t;
+    }
+}
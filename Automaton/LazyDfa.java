@@ -0,0 +1,150 @@
+package Automaton;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class LazyDfa implements WordMatcher {
+    public static final long DEFAULT_MEMORY_BUDGET = 16L << 20;
+
+    private static final int UNKNOWN = -2;
+    private static final int DEAD = -1;
+
+    private final BitParallelNfa nfa;
+    private final int width;
+    private final int maxStates;
+    private final Map<Mask, Integer> ids = new HashMap<>();
+    private long[][] masks;
+    private int[] transitions;
+    private final BitSet accepting = new BitSet();
+    private final long[] scratch;
+    private int size;
+    private int start;
+    private int flushes;
+
+    LazyDfa(BitParallelNfa nfa) {
+        this(nfa, DEFAULT_MEMORY_BUDGET);
+    }
+
+    LazyDfa(BitParallelNfa nfa, long memoryBudget) {
+        this.nfa = nfa;
+        this.width = Math.max(1, nfa.getSymbolBound());
+        long bytesPerState = 8L * nfa.getWordCount() + 4L * this.width + 64;
+        this.maxStates = (int) Math.max(2, Math.min(Integer.MAX_VALUE / this.width, memoryBudget / bytesPerState));
+        this.scratch = new long[nfa.getWordCount()];
+        flush();
+        this.flushes = 0;
+    }
+
+    @Override
+    public synchronized boolean matches(CharSequence input) {
+        int state = run(input);
+        return state >= 0 && this.accepting.get(state);
+    }
+
+    @Override
+    public synchronized BitSet matchingPatterns(CharSequence input) {
+        int state = run(input);
+        return state >= 0 ? this.nfa.patternsOf(this.masks[state]) : new BitSet();
+    }
+
+    private int run(CharSequence input) {
+        int state = this.start;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            int symbol = this.nfa.symbolOf(input.charAt(i));
+            if (symbol < 0) {
+                return DEAD;
+            }
+            int next = this.transitions[state * this.width + symbol];
+            if (next == UNKNOWN) {
+                next = computeTransition(state, symbol);
+            }
+            if (next == DEAD) {
+                return DEAD;
+            }
+            state = next;
+        }
+        return state;
+    }
+
+    public synchronized int getCachedStateCount() {
+        return this.size;
+    }
+
+    public synchronized int getFlushCount() {
+        return this.flushes;
+    }
+
+    public int getMaxStates() {
+        return this.maxStates;
+    }
+
+    private int computeTransition(int state, int symbol) {
+        if (!this.nfa.step(this.masks[state], this.scratch, symbol)) {
+            this.transitions[state * this.width + symbol] = DEAD;
+            return DEAD;
+        }
+        Integer known = this.ids.get(new Mask(this.scratch));
+        if (known != null) {
+            this.transitions[state * this.width + symbol] = known;
+            return known;
+        }
+        long[] target = this.scratch.clone();
+        if (this.size >= this.maxStates) {
+            flush();
+            return add(target);
+        }
+        int id = add(target);
+        this.transitions[state * this.width + symbol] = id;
+        return id;
+    }
+
+    private void flush() {
+        this.ids.clear();
+        this.accepting.clear();
+        this.masks = new long[Math.min(this.maxStates, 64)][];
+        this.transitions = new int[this.masks.length * this.width];
+        Arrays.fill(this.transitions, UNKNOWN);
+        this.size = 0;
+        this.flushes++;
+        this.start = add(this.nfa.getInitialMask().clone());
+    }
+
+    private int add(long[] mask) {
+        int id = this.size++;
+        if (id == this.masks.length) {
+            int capacity = (int) Math.min(this.maxStates, 2L * this.masks.length);
+            this.masks = Arrays.copyOf(this.masks, capacity);
+            int old = this.transitions.length;
+            this.transitions = Arrays.copyOf(this.transitions, capacity * this.width);
+            Arrays.fill(this.transitions, old, this.transitions.length, UNKNOWN);
+        }
+        this.masks[id] = mask;
+        this.ids.put(new Mask(mask), id);
+        if (this.nfa.isAccepting(mask)) {
+            this.accepting.set(id);
+        }
+        return id;
+    }
+
+    private static final class Mask {
+        private final long[] bits;
+        private final int hash;
+
+        Mask(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Mask other && other.hash == this.hash && Arrays.equals(other.bits, this.bits);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package Automaton;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// An automaton read in place from a file written by AutomatonFile. Deterministic files are
+// matched with one binary search per character in the current state's row; others run a
+// set-of-states simulation whose ε-edges sit at the start of every row, since ε and "..."
+// have the smallest symbol ids.
+public final class MappedAutomaton implements WordMatcher {
+    private final ByteBuffer buffer;
+    private final int stateCount;
+    private final int initial;
+    private final boolean deterministic;
+    private final int rowsOffset;
+    private final int edgesOffset;
+    private final int acceptingOffset;
+    private final int patternsOffset;
+    private final int[] symbolOf;
+    private final String[] names;
+
+    // Every section is checked against the buffer before anything is read from it, so a truncated
+    // or corrupt file fails here with an IOException rather than later while matching.
+    MappedAutomaton(ByteBuffer buffer, Path file) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < AutomatonFile.HEADER_SIZE || buffer.getInt(0) != AutomatonFile.MAGIC) {
+            throw new IOException("Not an automaton file: " + file);
+        }
+        int version = buffer.getShort(4);
+        if (version != AutomatonFile.VERSION) {
+            throw new IOException("Unsupported automaton file version " + version + ": " + file);
+        }
+        int flags = buffer.getShort(6);
+        this.deterministic = (flags & AutomatonFile.DETERMINISTIC) != 0;
+        this.stateCount = buffer.getInt(AutomatonFile.STATE_COUNT);
+        this.initial = buffer.getInt(AutomatonFile.INITIAL);
+        this.rowsOffset = buffer.getInt(AutomatonFile.ROWS_OFFSET);
+        this.edgesOffset = buffer.getInt(AutomatonFile.EDGES_OFFSET);
+        this.acceptingOffset = buffer.getInt(AutomatonFile.ACCEPTING_OFFSET);
+        this.patternsOffset = (flags & AutomatonFile.PATTERNS) != 0 ? buffer.getInt(AutomatonFile.PATTERNS_OFFSET) : 0;
+        int edges = buffer.getInt(AutomatonFile.EDGE_COUNT);
+        int symbolCount = buffer.getInt(AutomatonFile.SYMBOL_COUNT);
+        int n = this.stateCount;
+        if (n < 0 || edges < 0 || symbolCount <= SymbolTable.ELLIPSIS || this.initial < -1 || this.initial >= n
+                || !fits(buffer.getInt(AutomatonFile.SYMBOLS_OFFSET), 2L * symbolCount)
+                || !fits(this.rowsOffset, 4L * (n + 1))
+                || !fits(this.edgesOffset, 8L * edges)
+                || !fits(this.acceptingOffset, 8L * ((n + 63) / 64))) {
+            throw corrupt(file);
+        }
+        if ((flags & AutomatonFile.LAYOUT) != 0 && !fits(buffer.getInt(AutomatonFile.LAYOUT_OFFSET), 8L * n)) {
+            throw corrupt(file);
+        }
+        this.names = readSymbols(buffer.getInt(AutomatonFile.SYMBOLS_OFFSET), symbolCount, file);
+
+        int previous = 0;
+        for (int s = 0; s <= n; s++) {
+            int start = rowStart(s);
+            if (start < previous || start > edges || (s == 0 && start != 0)) {
+                throw corrupt(file);
+            }
+            previous = start;
+        }
+        for (int e = 0; e < edges; e++) {
+            int sym = symbol(e);
+            int target = target(e);
+            if (sym < 0 || sym >= symbolCount || target < 0 || target >= n) {
+                throw corrupt(file);
+            }
+        }
+        if (this.patternsOffset != 0) {
+            if (!fits(this.patternsOffset, 4L * (n + 1))) {
+                throw corrupt(file);
+            }
+            long words = (this.patternsOffset + 4L * (n + 1) + 7) & ~7L;
+            previous = 0;
+            for (int s = 0; s <= n; s++) {
+                int start = buffer.getInt(this.patternsOffset + 4 * s);
+                if (start < previous || (s == 0 && start != 0)) {
+                    throw corrupt(file);
+                }
+                previous = start;
+            }
+            if (!fits(words, 8L * previous)) {
+                throw corrupt(file);
+            }
+        }
+
+        int maxChar = -1;
+        for (int id = SymbolTable.ELLIPSIS + 1; id < this.names.length; id++) {
+            if (this.names[id].length() == 1) {
+                maxChar = Math.max(maxChar, this.names[id].charAt(0));
+            }
+        }
+        this.symbolOf = new int[maxChar + 1];
+        Arrays.fill(this.symbolOf, -1);
+        for (int id = SymbolTable.ELLIPSIS + 1; id < this.names.length; id++) {
+            if (this.names[id].length() == 1) {
+                this.symbolOf[this.names[id].charAt(0)] = id;
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        if (this.deterministic) {
+            int state = runDeterministic(input);
+            return state >= 0 && isAccepting(state);
+        }
+        BitSet current = run(input);
+        for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+            if (isAccepting(s)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public BitSet matchingPatterns(CharSequence input) {
+        BitSet result = new BitSet();
+        if (this.deterministic) {
+            int state = runDeterministic(input);
+            if (state >= 0 && isAccepting(state)) {
+                result.or(getPatterns(state));
+            }
+            return result;
+        }
+        BitSet current = run(input);
+        for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+            if (isAccepting(s)) {
+                result.or(getPatterns(s));
+            }
+        }
+        return result;
+    }
+
+    public int getStateCount() {
+        return this.stateCount;
+    }
+
+    public int getInitialState() {
+        return this.initial;
+    }
+
+    public boolean isDeterministic() {
+        return this.deterministic;
+    }
+
+    public boolean isAccepting(int state) {
+        long word = this.buffer.getLong(this.acceptingOffset + 8 * (state >>> 6));
+        return (word & (1L << state)) != 0;
+    }
+
+    public BitSet getPatterns(int state) {
+        if (this.patternsOffset == 0) {
+            return new BitSet();
+        }
+        int from = this.buffer.getInt(this.patternsOffset + 4 * state);
+        int to = this.buffer.getInt(this.patternsOffset + 4 * (state + 1));
+        int words = (this.patternsOffset + 4 * (this.stateCount + 1) + 7) & ~7;
+        long[] bits = new long[to - from];
+        for (int w = 0; w < bits.length; w++) {
+            bits[w] = this.buffer.getLong(words + 8 * (from + w));
+        }
+        return BitSet.valueOf(bits);
+    }
+
+    ByteBuffer buffer() {
+        return this.buffer;
+    }
+
+    int rowStart(int state) {
+        return this.buffer.getInt(this.rowsOffset + 4 * state);
+    }
+
+    String[] symbolNames() {
+        return this.names.clone();
+    }
+
+    private String[] readSymbols(long offset, int count, Path file) throws IOException {
+        String[] result = new String[count];
+        long p = offset;
+        for (int id = 0; id < count; id++) {
+            if (!fits(p, 2)) {
+                throw corrupt(file);
+            }
+            int length = this.buffer.getShort((int) p) & 0xFFFF;
+            if (!fits(p + 2, 2L * length)) {
+                throw corrupt(file);
+            }
+            char[] chars = new char[length];
+            for (int c = 0; c < length; c++) {
+                chars[c] = this.buffer.getChar((int) p + 2 + 2 * c);
+            }
+            result[id] = new String(chars);
+            p += 2 + 2L * length;
+        }
+        return result;
+    }
+
+    private boolean fits(long offset, long length) {
+        return offset >= 0 && length >= 0 && offset + length <= this.buffer.capacity();
+    }
+
+    private static IOException corrupt(Path file) {
+        return new IOException("Corrupt automaton file: " + file);
+    }
+
+    private int symbolOf(char c) {
+        return c < this.symbolOf.length ? this.symbolOf[c] : -1;
+    }
+
+    private int runDeterministic(CharSequence input) {
+        int state = this.initial;
+        for (int i = 0, n = input.length(); i < n && state >= 0; i++) {
+            int sym = symbolOf(input.charAt(i));
+            if (sym < 0) {
+                return -1;
+            }
+            int e = find(rowStart(state), rowStart(state + 1), sym);
+            state = e < 0 ? -1 : target(e);
+        }
+        return state;
+    }
+
+    private BitSet run(CharSequence input) {
+        BitSet current = new BitSet(this.stateCount);
+        if (this.initial < 0) {
+            return current;
+        }
+        current.set(this.initial);
+        close(current);
+        BitSet next = new BitSet(this.stateCount);
+        for (int i = 0, n = input.length(); i < n && !current.isEmpty(); i++) {
+            int sym = symbolOf(input.charAt(i));
+            next.clear();
+            if (sym >= 0) {
+                for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+                    int end = rowStart(s + 1);
+                    for (int e = find(rowStart(s), end, sym); e >= 0 && e < end && symbol(e) == sym; e++) {
+                        next.set(target(e));
+                    }
+                }
+                close(next);
+            }
+            BitSet swap = current;
+            current = next;
+            next = swap;
+        }
+        return current;
+    }
+
+    private void close(BitSet set) {
+        int[] stack = set.stream().toArray();
+        int size = stack.length;
+        while (size > 0) {
+            int s = stack[--size];
+            for (int e = rowStart(s), end = rowStart(s + 1); e < end && SymbolTable.isEpsilon(symbol(e)); e++) {
+                int t = target(e);
+                if (!set.get(t)) {
+                    set.set(t);
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, Math.max(16, size * 2));
+                    }
+                    stack[size++] = t;
+                }
+            }
+        }
+    }
+
+    // The first edge in [from, to) with the given symbol, or -1.
+    private int find(int from, int to, int sym) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (symbol(mid) < sym) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < to && symbol(lo) == sym ? lo : -1;
+    }
+
+    private int symbol(int edge) {
+        return this.buffer.getInt(this.edgesOffset + 8 * edge);
+    }
+
+    private int target(int edge) {
+        return this.buffer.getInt(this.edgesOffset + 8 * edge + 4);
+    }
+}
@@ -0,0 +1,8 @@
+package Automaton;
+
+public enum MatchEngine {
+    AUTO,
+    COMPILED_DFA,
+    BIT_PARALLEL_NFA,
+    LAZY_DFA
+}
@@ -0,0 +1,7 @@
+package Automaton;
+
+// Called on the thread that ran the phase, once the phase has completed.
+@FunctionalInterface
+public interface MetricsListener {
+    void phaseCompleted(PhaseMetrics metrics);
+}
@@ -0,0 +1,128 @@
+package Automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class OutgoingEdges {
+    private static final int[] NO_SYMBOLS = new int[0];
+
+    private final List<Translation> translations = new ArrayList<>();
+    // Per symbol, each target with the number of translations that reach it on that symbol.
+    private final List<Map<State, Integer>> targets = new ArrayList<>();
+    private final Map<State, Integer> epsilonTargets = new LinkedHashMap<>();
+    private int[] symbols = NO_SYMBOLS;
+    // Symbols with more than one target, plus one if there is any ε-edge.
+    private int conflicts;
+
+    List<Translation> getTranslations() {
+        return Collections.unmodifiableList(this.translations);
+    }
+
+    int[] getSymbols() {
+        return this.symbols;
+    }
+
+    Set<State> getTargets(int symbol) {
+        Map<State, Integer> result = symbol < this.targets.size() ? this.targets.get(symbol) : null;
+        return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result.keySet());
+    }
+
+    Set<State> getEpsilonTargets() {
+        return Collections.unmodifiableSet(this.epsilonTargets.keySet());
+    }
+
+    int getConflicts() {
+        return this.conflicts;
+    }
+
+    boolean isEmpty() {
+        return this.translations.isEmpty();
+    }
+
+    boolean contains(Translation t) {
+        return this.translations.contains(t);
+    }
+
+    void add(Translation t) {
+        this.translations.add(t);
+        index(t);
+    }
+
+    void remove(Translation t) {
+        if (this.translations.remove(t)) {
+            unindex(t);
+        }
+    }
+
+    void index(Translation t) {
+        for (int sym : t.getSymbols()) {
+            if (SymbolTable.isEpsilon(sym)) {
+                if (this.epsilonTargets.isEmpty()) {
+                    this.conflicts++;
+                }
+                this.epsilonTargets.merge(t.getToState(), 1, Integer::sum);
+                continue;
+            }
+            while (this.targets.size() <= sym) {
+                this.targets.add(null);
+            }
+            Map<State, Integer> counts = this.targets.get(sym);
+            if (counts == null) {
+                counts = new LinkedHashMap<>();
+                this.targets.set(sym, counts);
+                this.symbols = SymbolTable.union(this.symbols, new int[] { sym });
+            }
+            int before = counts.size();
+            counts.merge(t.getToState(), 1, Integer::sum);
+            if (before == 1 && counts.size() == 2) {
+                this.conflicts++;
+            }
+        }
+    }
+
+    void unindex(Translation t) {
+        for (int sym : t.getSymbols()) {
+            if (SymbolTable.isEpsilon(sym)) {
+                if (decrement(this.epsilonTargets, t.getToState()) && this.epsilonTargets.isEmpty()) {
+                    this.conflicts--;
+                }
+                continue;
+            }
+            Map<State, Integer> counts = sym < this.targets.size() ? this.targets.get(sym) : null;
+            if (counts == null) {
+                continue;
+            }
+            int before = counts.size();
+            decrement(counts, t.getToState());
+            if (before == 2 && counts.size() == 1) {
+                this.conflicts--;
+            }
+            if (counts.isEmpty()) {
+                this.targets.set(sym, null);
+                int at = Arrays.binarySearch(this.symbols, sym);
+                int[] fewer = new int[this.symbols.length - 1];
+                System.arraycopy(this.symbols, 0, fewer, 0, at);
+                System.arraycopy(this.symbols, at + 1, fewer, at, fewer.length - at);
+                this.symbols = fewer;
+            }
+        }
+    }
+
+    private static boolean decrement(Map<State, Integer> counts, State target) {
+        Integer count = counts.get(target);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            counts.remove(target);
+        } else {
+            counts.put(target, count - 1);
+        }
+        return true;
+    }
+}
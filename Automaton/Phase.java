@@ -0,0 +1,7 @@
+package Automaton;
+
+public enum Phase {
+    EPSILON_REMOVAL,
+    SUBSET_CONSTRUCTION,
+    MINIMIZATION
+}
@@ -0,0 +1,41 @@
+package Automaton;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("Automaton.Phase")
+@Label("Automaton Phase")
+@Category("Automaton")
+@Description("One phase of an automaton conversion")
+final class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("States Before")
+    int statesBefore;
+
+    @Label("States After")
+    int statesAfter;
+
+    @Label("Subset States")
+    long subsetStates;
+
+    @Label("Queue High-Water Mark")
+    int queueHighWater;
+
+    @Label("Refinement Rounds")
+    long refinementRounds;
+
+    @Label("Closure Cache Hits")
+    long closureHits;
+
+    @Label("Closure Cache Misses")
+    long closureMisses;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,96 @@
+package Automaton;
+
+// Counters that do not apply to a phase are zero; allocatedBytes is -1 when the JVM cannot
+// measure per-thread allocation.
+public final class PhaseMetrics {
+    private final Phase phase;
+    private final long durationNanos;
+    private final long allocatedBytes;
+    private final int statesBefore;
+    private final int statesAfter;
+    private final long subsetStates;
+    private final int queueHighWater;
+    private final long refinementRounds;
+    private final long closureHits;
+    private final long closureMisses;
+
+    PhaseMetrics(Phase phase, long durationNanos, long allocatedBytes, int statesBefore, int statesAfter,
+            long subsetStates, int queueHighWater, long refinementRounds, long closureHits, long closureMisses) {
+        this.phase = phase;
+        this.durationNanos = durationNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.statesBefore = statesBefore;
+        this.statesAfter = statesAfter;
+        this.subsetStates = subsetStates;
+        this.queueHighWater = queueHighWater;
+        this.refinementRounds = refinementRounds;
+        this.closureHits = closureHits;
+        this.closureMisses = closureMisses;
+    }
+
+    public Phase getPhase() {
+        return this.phase;
+    }
+
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    public int getStatesBefore() {
+        return this.statesBefore;
+    }
+
+    public int getStatesAfter() {
+        return this.statesAfter;
+    }
+
+    public long getSubsetStates() {
+        return this.subsetStates;
+    }
+
+    public int getQueueHighWater() {
+        return this.queueHighWater;
+    }
+
+    public long getRefinementRounds() {
+        return this.refinementRounds;
+    }
+
+    public long getClosureHits() {
+        return this.closureHits;
+    }
+
+    public long getClosureMisses() {
+        return this.closureMisses;
+    }
+
+    public double getClosureHitRate() {
+        long lookups = this.closureHits + this.closureMisses;
+        return lookups == 0 ? 0 : (double) this.closureHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(this.phase).append(String.format(" %.2f ms, %d → %d states", this.durationNanos / 1e6, this.statesBefore, this.statesAfter));
+        switch (this.phase) {
+            case EPSILON_REMOVAL:
+                sb.append(String.format(", closure hits %.0f%%", 100 * getClosureHitRate()));
+                break;
+            case SUBSET_CONSTRUCTION:
+                sb.append(", ").append(this.subsetStates).append(" subsets, queue ").append(this.queueHighWater);
+                break;
+            case MINIMIZATION:
+                sb.append(", ").append(this.refinementRounds).append(" rounds, queue ").append(this.queueHighWater);
+                break;
+        }
+        if (this.allocatedBytes >= 0) {
+            sb.append(", ").append(this.allocatedBytes >> 10).append(" KiB");
+        }
+        return sb.toString();
+    }
+}
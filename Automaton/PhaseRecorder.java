@@ -0,0 +1,76 @@
+package Automaton;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+// Times one phase and collects its counters. Allocation is measured on the calling thread
+// only, so work forked to a pool is not included.
+final class PhaseRecorder {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final Phase phase;
+    private final List<MetricsListener> listeners;
+    private final PhaseEvent event = new PhaseEvent();
+    private final int statesBefore;
+    private final long start;
+    private final long startBytes;
+
+    long subsetStates;
+    int queueHighWater;
+    long refinementRounds;
+    long closureHits;
+    long closureMisses;
+
+    PhaseRecorder(Phase phase, int statesBefore, List<MetricsListener> listeners) {
+        this.phase = phase;
+        this.listeners = listeners;
+        this.statesBefore = statesBefore;
+        this.event.begin();
+        this.startBytes = allocatedBytes();
+        this.start = System.nanoTime();
+    }
+
+    void queueSize(int size) {
+        if (size > this.queueHighWater) {
+            this.queueHighWater = size;
+        }
+    }
+
+    void finish(int statesAfter) {
+        long duration = System.nanoTime() - this.start;
+        long bytes = this.startBytes < 0 ? -1 : allocatedBytes() - this.startBytes;
+        this.event.end();
+        if (this.event.shouldCommit()) {
+            this.event.phase = this.phase.name();
+            this.event.statesBefore = this.statesBefore;
+            this.event.statesAfter = statesAfter;
+            this.event.subsetStates = this.subsetStates;
+            this.event.queueHighWater = this.queueHighWater;
+            this.event.refinementRounds = this.refinementRounds;
+            this.event.closureHits = this.closureHits;
+            this.event.closureMisses = this.closureMisses;
+            this.event.allocatedBytes = bytes;
+            this.event.commit();
+        }
+        if (this.listeners.isEmpty()) {
+            return;
+        }
+        PhaseMetrics metrics = new PhaseMetrics(this.phase, duration, bytes, this.statesBefore, statesAfter,
+                this.subsetStates, this.queueHighWater, this.refinementRounds, this.closureHits, this.closureMisses);
+        for (MetricsListener listener : this.listeners) {
+            listener.phaseCompleted(metrics);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+}
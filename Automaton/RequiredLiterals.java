@@ -0,0 +1,312 @@
+package Automaton;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+public final class RequiredLiterals {
+    private static final int MAX_LENGTH = 32;
+    // Candidate checks walk the product of the DFA with a KMP automaton, so skip them on DFAs
+    // large enough that the analysis would cost more than the scan it is meant to speed up.
+    private static final long MAX_WORK = 1L << 22;
+
+    private final String prefix;
+    private final String suffix;
+    private final String literal;
+    private final int maxWordLength;
+
+    private RequiredLiterals(String prefix, String suffix, String literal, int maxWordLength) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.literal = literal;
+        this.maxWordLength = maxWordLength;
+    }
+
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    public String getSuffix() {
+        return this.suffix;
+    }
+
+    public String getLiteral() {
+        return this.literal;
+    }
+
+    // -1 when the language contains words of unbounded length.
+    public int getMaxWordLength() {
+        return this.maxWordLength;
+    }
+
+    static RequiredLiterals analyze(CompiledDfa dfa) {
+        return new Analysis(dfa).run();
+    }
+
+    private static final class Analysis {
+        private final CompiledDfa dfa;
+        private final boolean[] live;
+        private final List<StringBuilder> classChars = new ArrayList<>();
+        private final int initial;
+
+        Analysis(CompiledDfa dfa) {
+            this.dfa = dfa;
+            this.live = dfa.liveStates();
+            for (int c = 0; c < dfa.getClassCount(); c++) {
+                this.classChars.add(new StringBuilder());
+            }
+            for (int ch = 0; ch < dfa.getCharBound(); ch++) {
+                int cls = dfa.classOf((char) ch);
+                if (cls >= 0) {
+                    this.classChars.get(cls).append((char) ch);
+                }
+            }
+            int start = dfa.getInitialState();
+            this.initial = start >= 0 && this.live[start] ? start : -1;
+        }
+
+        RequiredLiterals run() {
+            if (this.initial < 0) {
+                return new RequiredLiterals("", "", "", 0);
+            }
+            String prefix = prefix();
+            int maxWordLength = maxWordLength();
+            long work = (long) this.dfa.getStateCount() * Math.max(1, this.dfa.getClassCount());
+            if (work > MAX_WORK) {
+                return new RequiredLiterals(prefix, "", prefix, maxWordLength);
+            }
+
+            // A character sharing its class with another can be swapped for it in any accepted
+            // word, so only the sole characters of one-character classes can be required.
+            StringBuilder required = new StringBuilder();
+            for (StringBuilder chars : this.classChars) {
+                if (chars.length() == 1 && isRequired(chars.toString(), false)) {
+                    required.append(chars);
+                }
+            }
+
+            String literal = prefix;
+            for (int i = 0; i < required.length(); i++) {
+                String grown = grow(String.valueOf(required.charAt(i)), required, false);
+                if (grown.length() > literal.length()) {
+                    literal = grown;
+                }
+            }
+            String suffix = "";
+            for (int i = 0; i < required.length() && suffix.isEmpty(); i++) {
+                String candidate = String.valueOf(required.charAt(i));
+                if (isRequired(candidate, true)) {
+                    suffix = grow(candidate, required, true);
+                }
+            }
+            return new RequiredLiterals(prefix, suffix, literal, maxWordLength);
+        }
+
+        // Follows the single live transition out of each state for as long as it carries one character.
+        private String prefix() {
+            StringBuilder prefix = new StringBuilder();
+            int state = this.initial;
+            while (prefix.length() < MAX_LENGTH && !this.dfa.isAccepting(state)) {
+                int only = -1;
+                for (int c = 0; c < this.dfa.getClassCount(); c++) {
+                    int t = this.dfa.next(state, c);
+                    if (t >= 0 && this.live[t]) {
+                        if (only >= 0) {
+                            return prefix.toString();
+                        }
+                        only = c;
+                    }
+                }
+                if (only < 0 || this.classChars.get(only).length() != 1) {
+                    break;
+                }
+                prefix.append(this.classChars.get(only).charAt(0));
+                state = this.dfa.next(state, only);
+            }
+            return prefix.toString();
+        }
+
+        private int maxWordLength() {
+            int n = this.dfa.getStateCount();
+            int k = this.dfa.getClassCount();
+            int[] indegree = new int[n];
+            boolean[] reached = new boolean[n];
+            Deque<Integer> stack = new ArrayDeque<>();
+            reached[this.initial] = true;
+            stack.push(this.initial);
+            while (!stack.isEmpty()) {
+                int s = stack.pop();
+                for (int c = 0; c < k; c++) {
+                    int t = this.dfa.next(s, c);
+                    if (t >= 0 && this.live[t]) {
+                        indegree[t]++;
+                        if (!reached[t]) {
+                            reached[t] = true;
+                            stack.push(t);
+                        }
+                    }
+                }
+            }
+
+            int[] longest = new int[n];
+            int processed = 0;
+            int reachable = 0;
+            int max = 0;
+            for (boolean r : reached) {
+                reachable += r ? 1 : 0;
+            }
+            Deque<Integer> ready = new ArrayDeque<>();
+            ready.add(this.initial);
+            while (!ready.isEmpty()) {
+                int s = ready.poll();
+                processed++;
+                if (this.dfa.isAccepting(s)) {
+                    max = Math.max(max, longest[s]);
+                }
+                for (int c = 0; c < k; c++) {
+                    int t = this.dfa.next(s, c);
+                    if (t >= 0 && this.live[t]) {
+                        longest[t] = Math.max(longest[t], longest[s] + 1);
+                        if (--indegree[t] == 0) {
+                            ready.add(t);
+                        }
+                    }
+                }
+            }
+            return processed == reachable ? max : -1;
+        }
+
+        // Extends a required literal one character at a time, rightwards for infixes and leftwards for
+        // suffixes. Only characters that are required on their own can be part of a longer literal.
+        private String grow(String literal, CharSequence required, boolean suffix) {
+            boolean extended = true;
+            while (extended && literal.length() < MAX_LENGTH) {
+                extended = false;
+                for (int i = 0; i < required.length(); i++) {
+                    String candidate = suffix ? required.charAt(i) + literal : literal + required.charAt(i);
+                    if (isRequired(candidate, suffix)) {
+                        literal = candidate;
+                        extended = true;
+                        break;
+                    }
+                }
+            }
+            if (!suffix) {
+                extended = true;
+                while (extended && literal.length() < MAX_LENGTH) {
+                    extended = false;
+                    for (int i = 0; i < required.length(); i++) {
+                        String candidate = required.charAt(i) + literal;
+                        if (isRequired(candidate, false)) {
+                            literal = candidate;
+                            extended = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            return literal;
+        }
+
+        // Walks every reachable pair (DFA state, KMP state for w). As an infix, w is required when no
+        // accepting state is reachable before w has been seen; as a suffix, when every accepting
+        // state is reached right after w.
+        private boolean isRequired(String w, boolean suffix) {
+            int m = w.length();
+            int[][] kmp = kmp(w);
+            String symbols = distinct(w);
+            int k = this.dfa.getClassCount();
+            int[] classOfSymbol = new int[symbols.length()];
+            int[] symbolsInClass = new int[k];
+            for (int x = 0; x < symbols.length(); x++) {
+                classOfSymbol[x] = this.dfa.classOf(symbols.charAt(x));
+                if (classOfSymbol[x] >= 0) {
+                    symbolsInClass[classOfSymbol[x]]++;
+                }
+            }
+            int width = m + 1;
+            boolean[] seen = new boolean[this.dfa.getStateCount() * width];
+            Deque<Integer> queue = new ArrayDeque<>();
+            seen[this.initial * width] = true;
+            queue.add(this.initial * width);
+            while (!queue.isEmpty()) {
+                int pair = queue.poll();
+                int s = pair / width;
+                int j = pair % width;
+                if (this.dfa.isAccepting(s) && (suffix ? j != m : j < m)) {
+                    return false;
+                }
+                for (int c = 0; c < k; c++) {
+                    int t = this.dfa.next(s, c);
+                    if (t < 0 || !this.live[t]) {
+                        continue;
+                    }
+                    // Only the characters of w need their own KMP step; the rest of the class
+                    // all take the "other" column, so a pair costs O(1) per class, not per character.
+                    if (symbolsInClass[c] > 0) {
+                        for (int x = 0; x < symbols.length(); x++) {
+                            if (classOfSymbol[x] == c) {
+                                visit(t, kmp[j][x], suffix, m, width, seen, queue);
+                            }
+                        }
+                    }
+                    if (this.classChars.get(c).length() > symbolsInClass[c]) {
+                        visit(t, kmp[j][symbols.length()], suffix, m, width, seen, queue);
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static void visit(int t, int j, boolean suffix, int m, int width, boolean[] seen, Deque<Integer> queue) {
+            if (!suffix && j == m) {
+                return;
+            }
+            int pair = t * width + j;
+            if (!seen[pair]) {
+                seen[pair] = true;
+                queue.add(pair);
+            }
+        }
+
+        // kmp[j][x] is the next match length after reading symbols[x] with j characters of w
+        // matched; the last column stands for every character not in w.
+        private static int[][] kmp(String w) {
+            String symbols = distinct(w);
+            int m = w.length();
+            int[] fail = new int[m + 1];
+            for (int i = 1, f = 0; i < m; i++) {
+                while (f > 0 && w.charAt(i) != w.charAt(f)) {
+                    f = fail[f];
+                }
+                if (w.charAt(i) == w.charAt(f)) {
+                    f++;
+                }
+                fail[i + 1] = f;
+            }
+            int[][] delta = new int[m + 1][symbols.length() + 1];
+            for (int j = 0; j <= m; j++) {
+                for (int x = 0; x < symbols.length(); x++) {
+                    char ch = symbols.charAt(x);
+                    if (j < m && w.charAt(j) == ch) {
+                        delta[j][x] = j + 1;
+                    } else {
+                        delta[j][x] = j == 0 ? 0 : delta[fail[j]][x];
+                    }
+                }
+            }
+            return delta;
+        }
+
+        private static String distinct(String w) {
+            StringBuilder symbols = new StringBuilder();
+            for (int i = 0; i < w.length(); i++) {
+                if (symbols.indexOf(String.valueOf(w.charAt(i))) < 0) {
+                    symbols.append(w.charAt(i));
+                }
+            }
+            return symbols.toString();
+        }
+    }
+}
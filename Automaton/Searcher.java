@@ -0,0 +1,350 @@
+package Automaton;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public final class Searcher {
+    public enum Mode {
+        LEFTMOST_LONGEST,
+        // The longest match at every start offset, so reported matches may overlap.
+        ALL_MATCHES
+    }
+
+    public record Match(long start, long end) {
+    }
+
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    private static final long DEFAULT_CHUNK = 64L << 20;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    private final CompiledDfa dfa;
+    private final int[] byteClass = new int[256];
+    private final boolean[] live;
+    private final long chunkSize;
+    private final RequiredLiterals literals;
+    private final String filter;
+    private final byte[] filterBytes;
+    private final boolean anchored;
+
+    Searcher(CompiledDfa dfa) {
+        this(dfa, DEFAULT_CHUNK);
+    }
+
+    Searcher(CompiledDfa dfa, long chunkSize) {
+        this.dfa = dfa;
+        this.chunkSize = chunkSize;
+        for (int b = 0; b < 256; b++) {
+            this.byteClass[b] = dfa.classOf((char) b);
+        }
+        this.live = dfa.liveStates();
+        this.literals = RequiredLiterals.analyze(dfa);
+        this.anchored = !this.literals.getPrefix().isEmpty();
+        this.filter = this.anchored ? this.literals.getPrefix() : this.literals.getLiteral();
+        this.filterBytes = latin1(this.filter);
+    }
+
+    public CompiledDfa getDfa() {
+        return this.dfa;
+    }
+
+    public RequiredLiterals getLiterals() {
+        return this.literals;
+    }
+
+    public List<Match> search(CharSequence text, Mode mode) {
+        List<Match> matches = new ArrayList<>();
+        TextInput input = new TextInput(text);
+        prepare(input);
+        scan(input, mode, 0, text.length() + 1L, matches);
+        return matches;
+    }
+
+    // Bytes are read as Latin-1, so a byte b is matched like the character (char) b.
+    public List<Match> search(Path file, Mode mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedInput input = new MappedInput(channel);
+            prepare(input);
+            long length = input.length();
+            int chunks = (int) Math.max(1, (length + this.chunkSize - 1) / this.chunkSize);
+            List<List<Match>> parts = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+                List<Match> matches = new ArrayList<>();
+                scan(input, mode, c * this.chunkSize, chunkEnd(c, chunks, length), matches);
+                return matches;
+            }).toList();
+
+            if (mode == Mode.ALL_MATCHES) {
+                List<Match> matches = new ArrayList<>();
+                parts.forEach(matches::addAll);
+                return matches;
+            }
+            return resync(input, parts, length);
+        }
+    }
+
+    private void prepare(Input input) {
+        boolean unbounded = !this.anchored && this.literals.getMaxWordLength() < 0;
+        input.lastFilter = unbounded && !this.filter.isEmpty() ? input.lastIndexOfFilter() : Long.MAX_VALUE;
+    }
+
+    // Skips offsets that cannot start a match. With a required prefix, matches start exactly where it
+    // occurs. Otherwise a match must contain the required literal at or after its start: within
+    // maxWordLength of it when words are bounded, or anywhere up to its last occurrence when not.
+    private long nextCandidate(Input input, long pos, long to) {
+        if (this.filter.isEmpty() || pos >= to) {
+            return pos;
+        }
+        if (this.anchored) {
+            long i = input.indexOfFilter(pos, to);
+            return i < 0 ? to : i;
+        }
+        int maxLength = this.literals.getMaxWordLength();
+        if (maxLength < 0) {
+            return pos <= input.lastFilter ? pos : to;
+        }
+        long lead = maxLength - this.filter.length();
+        long i = input.indexOfFilter(pos, to + lead);
+        return i < 0 ? to : Math.max(pos, i - lead);
+    }
+
+    private void scan(Input input, Mode mode, long from, long to, List<Match> out) {
+        long pos = from;
+        while (pos < to) {
+            pos = nextCandidate(input, pos, to);
+            if (pos >= to) {
+                break;
+            }
+            long end = longestAt(input, pos);
+            if (end < 0) {
+                pos++;
+                continue;
+            }
+            Match match = new Match(pos, end);
+            out.add(match);
+            pos = mode == Mode.ALL_MATCHES ? pos + 1 : nextAttempt(match);
+        }
+    }
+
+    // Each chunk was scanned as if no match crossed into it. When the previous chunk's last match
+    // does run past the boundary, rescan from its end until reaching an offset this chunk also
+    // tried; from there the two scans agree and the rest of the chunk's matches can be kept.
+    private List<Match> resync(Input input, List<List<Match>> parts, long length) {
+        List<Match> result = new ArrayList<>();
+        long pos = 0;
+        for (int c = 0; c < parts.size(); c++) {
+            List<Match> part = parts.get(c);
+            long to = chunkEnd(c, parts.size(), length);
+            while (pos < to) {
+                int next = firstStartingAt(part, pos);
+                if (next > 0 && nextAttempt(part.get(next - 1)) > pos) {
+                    long end = longestAt(input, pos);
+                    if (end < 0) {
+                        pos = nextCandidate(input, pos + 1, to);
+                        continue;
+                    }
+                    Match match = new Match(pos, end);
+                    result.add(match);
+                    pos = nextAttempt(match);
+                    continue;
+                }
+                result.addAll(part.subList(next, part.size()));
+                if (next < part.size()) {
+                    pos = nextAttempt(part.get(part.size() - 1));
+                }
+                break;
+            }
+        }
+        return result;
+    }
+
+    private long longestAt(Input input, long start) {
+        int state = this.dfa.getInitialState();
+        if (state < 0) {
+            return -1;
+        }
+        long end = this.dfa.isAccepting(state) ? start : -1;
+        for (long i = start, n = input.length(); i < n; i++) {
+            int cls = input.classAt(i);
+            if (cls < 0) {
+                break;
+            }
+            state = this.dfa.next(state, cls);
+            if (state < 0 || !this.live[state]) {
+                break;
+            }
+            if (this.dfa.isAccepting(state)) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    private long chunkEnd(int chunk, int chunks, long length) {
+        return chunk == chunks - 1 ? length + 1 : (chunk + 1) * this.chunkSize;
+    }
+
+    private static long nextAttempt(Match match) {
+        return match.end() > match.start() ? match.end() : match.end() + 1;
+    }
+
+    private static int firstStartingAt(List<Match> matches, long pos) {
+        int lo = 0;
+        int hi = matches.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (matches.get(mid).start() < pos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static byte[] latin1(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = text.charAt(i);
+            if (c > 0xFF) {
+                return null;
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    private abstract static class Input {
+        long lastFilter = Long.MAX_VALUE;
+
+        abstract long length();
+
+        abstract int classAt(long pos);
+
+        // First occurrence of the filter literal starting in [from, to), or -1.
+        abstract long indexOfFilter(long from, long to);
+
+        abstract long lastIndexOfFilter();
+    }
+
+    private final class TextInput extends Input {
+        private final String text;
+
+        TextInput(CharSequence text) {
+            this.text = text.toString();
+        }
+
+        @Override
+        long length() {
+            return this.text.length();
+        }
+
+        @Override
+        int classAt(long pos) {
+            return dfa.classOf(this.text.charAt((int) pos));
+        }
+
+        @Override
+        long indexOfFilter(long from, long to) {
+            int i = this.text.indexOf(filter, (int) from);
+            return i < 0 || i >= to ? -1 : i;
+        }
+
+        @Override
+        long lastIndexOfFilter() {
+            return this.text.lastIndexOf(filter);
+        }
+    }
+
+    private final class MappedInput extends Input {
+        private final MappedByteBuffer[] segments;
+        private final long length;
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.length = channel.size();
+            int count = (int) ((this.length + SEGMENT_MASK) >>> SEGMENT_BITS);
+            this.segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long offset = (long) i << SEGMENT_BITS;
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(1L << SEGMENT_BITS, this.length - offset));
+                this.segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        @Override
+        long length() {
+            return this.length;
+        }
+
+        @Override
+        int classAt(long pos) {
+            return byteClass[byteAt(pos)];
+        }
+
+        private int byteAt(long pos) {
+            return this.segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & SEGMENT_MASK)) & 0xFF;
+        }
+
+        // Looks for the literal's first byte eight bytes at a time: after XOR with the broadcast byte a
+        // match is a zero byte, and the lowest flagged byte of the classic has-zero test is exact.
+        @Override
+        long indexOfFilter(long from, long to) {
+            if (filterBytes == null) {
+                return -1;
+            }
+            long last = Math.min(to, this.length - filterBytes.length + 1);
+            long pattern = ONES * (filterBytes[0] & 0xFF);
+            long i = from;
+            while (i < last) {
+                MappedByteBuffer segment = this.segments[(int) (i >>> SEGMENT_BITS)];
+                int offset = (int) (i & SEGMENT_MASK);
+                if (offset + 8 <= segment.limit() && i + 8 <= last) {
+                    long word = segment.getLong(offset) ^ pattern;
+                    long found = (word - ONES) & ~word & HIGHS;
+                    if (found == 0) {
+                        i += 8;
+                        continue;
+                    }
+                    i += Long.numberOfTrailingZeros(found) >>> 3;
+                } else if (byteAt(i) != (filterBytes[0] & 0xFF)) {
+                    i++;
+                    continue;
+                }
+                if (matchesFilterAt(i)) {
+                    return i;
+                }
+                i++;
+            }
+            return -1;
+        }
+
+        @Override
+        long lastIndexOfFilter() {
+            if (filterBytes == null) {
+                return -1;
+            }
+            for (long i = this.length - filterBytes.length; i >= 0; i--) {
+                if (matchesFilterAt(i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean matchesFilterAt(long pos) {
+            for (int j = 0; j < filterBytes.length; j++) {
+                if (byteAt(pos + j) != (filterBytes[j] & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package Automaton;
 
+import java.util.BitSet;
+
 public class State {
     private String name;
     private boolean initial;
     private boolean accepting;
     private int x;
     private int y;
+    private BitSet patterns;
 
     public State() {
         this.name = "";
@@ -58,6 +61,28 @@ public class State {
         this.accepting = accepting;
     }
 
+    public BitSet getPatterns() {
+        return this.patterns == null ? new BitSet() : (BitSet) this.patterns.clone();
+    }
+
+    public boolean hasPatterns() {
+        return this.patterns != null;
+    }
+
+    public void setPatterns(BitSet patterns) {
+        this.patterns = patterns == null || patterns.isEmpty() ? null : (BitSet) patterns.clone();
+    }
+
+    public void addPatterns(BitSet patterns) {
+        if (patterns.isEmpty()) {
+            return;
+        }
+        if (this.patterns == null) {
+            this.patterns = new BitSet();
+        }
+        this.patterns.or(patterns);
+    }
+
     public void setName(String name) {
         this.name = name;
     }
@@ -0,0 +1,317 @@
+package Automaton;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class SubsetConstruction {
+    private final int n;
+    private final int k;
+    private final int[] alphabet;
+    private final int[] succStart;
+    private final int[] succ;
+    private final boolean[] accepting;
+    private final BitSet[] patterns;
+    private final int initial;
+
+    SubsetConstruction(Automaton automaton) {
+        List<State> states = automaton.getStates();
+        this.n = states.size();
+        this.alphabet = automaton.getAlphabetIds();
+        this.k = this.alphabet.length;
+
+        Map<State, Integer> ids = new HashMap<>();
+        for (int i = 0; i < this.n; i++) {
+            ids.put(states.get(i), i);
+        }
+        int[] symbolIndex = new int[automaton.getSymbolTable().size()];
+        Arrays.fill(symbolIndex, -1);
+        for (int a = 0; a < this.k; a++) {
+            symbolIndex[this.alphabet[a]] = a;
+        }
+
+        this.succStart = new int[this.n * this.k + 1];
+        int total = 0;
+        for (int i = 0; i < this.n; i++) {
+            for (int sym : automaton.getSymbols(states.get(i))) {
+                int slot = i * this.k + symbolIndex[sym];
+                for (State target : automaton.getTargets(states.get(i), sym)) {
+                    if (ids.containsKey(target)) {
+                        this.succStart[slot + 1]++;
+                        total++;
+                    }
+                }
+            }
+        }
+        for (int i = 1; i < this.succStart.length; i++) {
+            this.succStart[i] += this.succStart[i - 1];
+        }
+        this.succ = new int[total];
+        int[] fill = Arrays.copyOf(this.succStart, this.succStart.length - 1);
+        for (int i = 0; i < this.n; i++) {
+            for (int sym : automaton.getSymbols(states.get(i))) {
+                int slot = i * this.k + symbolIndex[sym];
+                for (State target : automaton.getTargets(states.get(i), sym)) {
+                    Integer t = ids.get(target);
+                    if (t != null) {
+                        this.succ[fill[slot]++] = t;
+                    }
+                }
+            }
+        }
+
+        this.accepting = new boolean[this.n];
+        this.patterns = states.stream().anyMatch(State::hasPatterns) ? new BitSet[this.n] : null;
+        int start = -1;
+        for (int i = 0; i < this.n; i++) {
+            this.accepting[i] = states.get(i).isAccepting();
+            if (this.patterns != null) {
+                this.patterns[i] = states.get(i).getPatterns();
+            }
+            if (start < 0 && states.get(i).isInitial()) {
+                start = i;
+            }
+        }
+        this.initial = start;
+    }
+
+    int[] getAlphabet() {
+        return this.alphabet;
+    }
+
+    Result run(PhaseRecorder recorder) {
+        SubsetTable table = new SubsetTable();
+        int[] mark = new int[this.n];
+        int[] buffer = new int[this.n];
+        int generation = 0;
+        int[] delta = new int[Math.max(1, 16 * this.k)];
+
+        table.add(new int[] { this.initial }, 1);
+        for (int d = 0; d < table.size(); d++) {
+            if ((d & 0xFF) == 0) {
+                Cancellation.check();
+            }
+            recorder.queueSize(table.size() - d);
+            if ((d + 1) * this.k > delta.length) {
+                delta = Arrays.copyOf(delta, delta.length * 2);
+            }
+            int[] subset = table.get(d);
+            for (int a = 0; a < this.k; a++) {
+                int length = successors(subset, a, mark, ++generation, buffer);
+                if (length == 0) {
+                    delta[d * this.k + a] = -1;
+                    continue;
+                }
+                int id = table.find(buffer, length);
+                delta[d * this.k + a] = id >= 0 ? id : table.add(buffer, length);
+            }
+        }
+
+        int count = table.size();
+        recorder.subsetStates = count;
+        BitSet acceptingSubsets = new BitSet(count);
+        BitSet[] subsetPatterns = new BitSet[count];
+        for (int d = 0; d < count; d++) {
+            if (isAccepting(table.get(d))) {
+                acceptingSubsets.set(d);
+            }
+            subsetPatterns[d] = patternsOf(table.get(d));
+        }
+        return new Result(count, Arrays.copyOf(delta, count * this.k), acceptingSubsets, subsetPatterns);
+    }
+
+    Result runParallel(ForkJoinPool pool, PhaseRecorder recorder) {
+        return new ParallelRun().execute(pool, recorder);
+    }
+
+    private int successors(int[] subset, int a, int[] mark, int generation, int[] buffer) {
+        int length = 0;
+        for (int s : subset) {
+            for (int p = this.succStart[s * this.k + a], end = this.succStart[s * this.k + a + 1]; p < end; p++) {
+                int t = this.succ[p];
+                if (mark[t] != generation) {
+                    mark[t] = generation;
+                    buffer[length++] = t;
+                }
+            }
+        }
+        Arrays.sort(buffer, 0, length);
+        return length;
+    }
+
+    private BitSet patternsOf(int[] subset) {
+        if (this.patterns == null) {
+            return null;
+        }
+        BitSet union = new BitSet();
+        for (int s : subset) {
+            if (this.accepting[s]) {
+                union.or(this.patterns[s]);
+            }
+        }
+        return union;
+    }
+
+    private boolean isAccepting(int[] subset) {
+        for (int s : subset) {
+            if (this.accepting[s]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class ParallelRun {
+        private final ConcurrentHashMap<Key, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, int[]> subsets = new ConcurrentHashMap<>();
+        private final Map<Integer, int[]> rows = new ConcurrentHashMap<>();
+        private final AtomicInteger nextId = new AtomicInteger();
+        private final Queue<Integer> discovered = new ConcurrentLinkedQueue<>();
+
+        Result execute(ForkJoinPool pool, PhaseRecorder recorder) {
+            int[] start = { initial };
+            this.ids.put(new Key(start, start.length), this.nextId.getAndIncrement());
+            this.subsets.put(0, start);
+            int[] frontier = { 0 };
+            while (frontier.length > 0) {
+                Cancellation.check();
+                recorder.queueSize(frontier.length);
+                pool.invoke(new ExpandTask(frontier, 0, frontier.length));
+                frontier = this.discovered.stream().mapToInt(Integer::intValue).toArray();
+                this.discovered.clear();
+            }
+
+            int count = this.nextId.get();
+            recorder.subsetStates = count;
+            int[] canonical = new int[count];
+            Arrays.fill(canonical, -1);
+            int[] order = new int[count];
+            int ordered = 0;
+            canonical[0] = 0;
+            order[ordered++] = 0;
+            for (int i = 0; i < ordered; i++) {
+                int[] row = this.rows.get(order[i]);
+                for (int a = 0; a < k; a++) {
+                    int t = row[a];
+                    if (t >= 0 && canonical[t] < 0) {
+                        canonical[t] = ordered;
+                        order[ordered++] = t;
+                    }
+                }
+            }
+
+            int[] delta = new int[count * k];
+            BitSet acceptingSubsets = new BitSet(count);
+            BitSet[] subsetPatterns = new BitSet[count];
+            for (int d = 0; d < count; d++) {
+                int[] row = this.rows.get(order[d]);
+                for (int a = 0; a < k; a++) {
+                    delta[d * k + a] = row[a] < 0 ? -1 : canonical[row[a]];
+                }
+                if (isAccepting(this.subsets.get(order[d]))) {
+                    acceptingSubsets.set(d);
+                }
+                subsetPatterns[d] = patternsOf(this.subsets.get(order[d]));
+            }
+            return new Result(count, delta, acceptingSubsets, subsetPatterns);
+        }
+
+        private int idOf(int[] buffer, int length) {
+            Integer id = this.ids.get(new Key(buffer, length));
+            if (id != null) {
+                return id;
+            }
+            int[] copy = Arrays.copyOf(buffer, length);
+            return this.ids.computeIfAbsent(new Key(copy, length), key -> {
+                int fresh = this.nextId.getAndIncrement();
+                this.subsets.put(fresh, copy);
+                this.discovered.add(fresh);
+                return fresh;
+            });
+        }
+
+        private final class ExpandTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private static final int THRESHOLD = 64;
+
+            private final int[] frontier;
+            private final int from;
+            private final int to;
+
+            ExpandTask(int[] frontier, int from, int to) {
+                this.frontier = frontier;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (this.to - this.from > THRESHOLD) {
+                    int mid = (this.from + this.to) >>> 1;
+                    invokeAll(new ExpandTask(this.frontier, this.from, mid), new ExpandTask(this.frontier, mid, this.to));
+                    return;
+                }
+                int[] mark = new int[n];
+                int[] buffer = new int[n];
+                int generation = 0;
+                for (int f = this.from; f < this.to; f++) {
+                    int d = this.frontier[f];
+                    int[] subset = subsets.get(d);
+                    int[] row = new int[k];
+                    for (int a = 0; a < k; a++) {
+                        int length = successors(subset, a, mark, ++generation, buffer);
+                        row[a] = length == 0 ? -1 : idOf(buffer, length);
+                    }
+                    rows.put(d, row);
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final int[] subset;
+        private final int length;
+        private final int hash;
+
+        Key(int[] subset, int length) {
+            this.subset = subset;
+            this.length = length;
+            this.hash = SubsetTable.hash(subset, length);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other) || other.hash != this.hash || other.length != this.length) {
+                return false;
+            }
+            return Arrays.equals(this.subset, 0, this.length, other.subset, 0, other.length);
+        }
+    }
+
+    static final class Result {
+        final int stateCount;
+        final int[] delta;
+        final BitSet accepting;
+        final BitSet[] patterns;
+
+        Result(int stateCount, int[] delta, BitSet accepting, BitSet[] patterns) {
+            this.stateCount = stateCount;
+            this.delta = delta;
+            this.accepting = accepting;
+            this.patterns = patterns;
+        }
+    }
+}
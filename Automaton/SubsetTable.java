@@ -0,0 +1,91 @@
+package Automaton;
+
+import java.util.Arrays;
+
+final class SubsetTable {
+    private int[] slots;
+    private int[] hashes;
+    private int[][] subsets;
+    private int size;
+
+    SubsetTable() {
+        this.slots = new int[64];
+        this.hashes = new int[32];
+        this.subsets = new int[32][];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int[] get(int id) {
+        return this.subsets[id];
+    }
+
+    int find(int[] buffer, int length) {
+        int hash = hash(buffer, length);
+        int mask = this.slots.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int slot = this.slots[i];
+            if (slot == 0) {
+                return -1;
+            }
+            int id = slot - 1;
+            if (this.hashes[id] == hash && equals(this.subsets[id], buffer, length)) {
+                return id;
+            }
+        }
+    }
+
+    int add(int[] buffer, int length) {
+        if ((this.size + 1) * 2 > this.slots.length) {
+            grow();
+        }
+        int id = this.size++;
+        if (id == this.subsets.length) {
+            this.subsets = Arrays.copyOf(this.subsets, id * 2);
+            this.hashes = Arrays.copyOf(this.hashes, id * 2);
+        }
+        int hash = hash(buffer, length);
+        this.subsets[id] = Arrays.copyOf(buffer, length);
+        this.hashes[id] = hash;
+        insert(id, hash);
+        return id;
+    }
+
+    private void insert(int id, int hash) {
+        int mask = this.slots.length - 1;
+        int i = hash & mask;
+        while (this.slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        this.slots[i] = id + 1;
+    }
+
+    private void grow() {
+        this.slots = new int[this.slots.length * 2];
+        for (int id = 0; id < this.size; id++) {
+            insert(id, this.hashes[id]);
+        }
+    }
+
+    static int hash(int[] buffer, int length) {
+        int h = length;
+        for (int i = 0; i < length; i++) {
+            h = h * 0x9E3779B1 + buffer[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(int[] subset, int[] buffer, int length) {
+        if (subset.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (subset[i] != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,137 @@
+package Automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class SymbolTable {
+    public static final int EPSILON = 0;
+    public static final int ELLIPSIS = 1;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private int[] charIds = new int[0];
+
+    public SymbolTable() {
+        register("ε");
+        register("...");
+    }
+
+    public static boolean isEpsilon(int id) {
+        return id == EPSILON || id == ELLIPSIS;
+    }
+
+    public static String normalize(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        String trimmed = symbol.trim();
+        if (trimmed.equals("ε") || trimmed.equals("eps")) {
+            return "ε";
+        }
+        if (trimmed.equals("...") || trimmed.length() == 1) {
+            return trimmed;
+        }
+        return null;
+    }
+
+    public int size() {
+        return this.names.size();
+    }
+
+    public String nameOf(int id) {
+        return this.names.get(id);
+    }
+
+    public int idOf(String symbol) {
+        String name = normalize(symbol);
+        if (name == null) {
+            return -1;
+        }
+        Integer id = this.ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public int idOf(char c) {
+        return c < this.charIds.length ? this.charIds[c] : -1;
+    }
+
+    public int intern(String symbol) {
+        String name = normalize(symbol);
+        if (name == null) {
+            return -1;
+        }
+        Integer id = this.ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    public int[] parse(String label) {
+        if (label == null) {
+            return new int[0];
+        }
+        return Arrays.stream(label.split("[ ,]+"))
+                .mapToInt(this::intern)
+                .filter(id -> id >= 0)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    public int[] internAll(String chars) {
+        return chars.chars()
+                .map(c -> intern(String.valueOf((char) c)))
+                .filter(id -> id >= 0)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    public String format(int[] symbols) {
+        String[] parts = new String[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            parts[i] = nameOf(symbols[i]);
+        }
+        Arrays.sort(parts);
+        return String.join(", ", parts);
+    }
+
+    static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[k++] = a[i++];
+            } else if (a[i] > b[j]) {
+                out[k++] = b[j++];
+            } else {
+                out[k++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            out[k++] = a[i++];
+        }
+        while (j < b.length) {
+            out[k++] = b[j++];
+        }
+        return k == out.length ? out : Arrays.copyOf(out, k);
+    }
+
+    private int register(String name) {
+        int id = this.names.size();
+        this.names.add(name);
+        this.ids.put(name, id);
+        if (name.length() == 1 && id > ELLIPSIS) {
+            char c = name.charAt(0);
+            if (c >= this.charIds.length) {
+                int old = this.charIds.length;
+                this.charIds = Arrays.copyOf(this.charIds, Math.max(c + 1, old * 2));
+                Arrays.fill(this.charIds, old, this.charIds.length, -1);
+            }
+            this.charIds[c] = id;
+        }
+        return id;
+    }
+}
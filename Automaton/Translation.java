@@ -1,18 +1,46 @@
 package Automaton;
 
+import java.util.Arrays;
+
 public class Translation {
-    private String symbol;
+    private final SymbolTable table;
+    private int[] symbols;
+    private String label;
     private State fromState;
     private State toState;
 
-    public Translation(String symbol, State fromState, State toState) {
-        this.symbol = sortSymbols(symbol);
+    public Translation(SymbolTable table, String symbol, State fromState, State toState) {
+        this(table, table.parse(symbol), fromState, toState);
+    }
+
+    public Translation(SymbolTable table, int[] symbols, State fromState, State toState) {
+        this.table = table;
+        this.symbols = symbols;
         this.fromState = fromState;
         this.toState = toState;
     }
 
     public String getSymbol() {
-        return this.symbol;
+        if (this.label == null) {
+            this.label = this.table.format(this.symbols);
+        }
+        return this.label;
+    }
+
+    public int[] getSymbols() {
+        return this.symbols;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return this.table;
+    }
+
+    public boolean hasSymbol(int id) {
+        return Arrays.binarySearch(this.symbols, id) >= 0;
+    }
+
+    public boolean hasEpsilon() {
+        return hasSymbol(SymbolTable.EPSILON) || hasSymbol(SymbolTable.ELLIPSIS);
     }
 
     public State getFromState() {
@@ -27,46 +55,31 @@ public class Translation {
         if (newSymbol == null || newSymbol.trim().isEmpty()) {
             return;
         }
-        this.symbol = sortSymbols(this.symbol + ", " + newSymbol);
+        addSymbols(this.table.parse(newSymbol));
     }
 
-    private String sortSymbols(String input) {
-        if (input == null) {
-            return "";
-        }
-        String[] parts = input.split("[ ,]+");
-        java.util.Set<String> set = new java.util.TreeSet<>();
-        for (String s : parts) {
-            String trimmed = s.trim();
-            if (trimmed.isEmpty()) {
-                continue;
-            }
-            if (trimmed.equals("...") || trimmed.equals("ε") || trimmed.equals("eps")) {
-                set.add(trimmed.equals("...") ? "..." : (trimmed.equals("ε") ? "ε" : "ε"));
-            } else if (trimmed.length() == 1) {
-                set.add(trimmed);
-            }
-        }
-        return String.join(", ", set);
+    public void addSymbols(int[] ids) {
+        this.symbols = SymbolTable.union(this.symbols, ids);
+        this.label = null;
     }
 
     public void removeSymbol(String symbolToDelete) {
         if (symbolToDelete == null || symbolToDelete.trim().isEmpty()) {
             return;
         }
-        String[] parts = this.symbol.split("[ ,]+");
-        java.util.Set<String> set = new java.util.TreeSet<>();
-
-        String target = symbolToDelete.trim();
-        for (String s : parts) {
-            if (!s.equals(target)) {
-                set.add(s);
-            }
+        int id = this.table.idOf(symbolToDelete);
+        int index = Arrays.binarySearch(this.symbols, id);
+        if (id < 0 || index < 0) {
+            return;
         }
-        this.symbol = String.join(", ", set);
+        int[] remaining = new int[this.symbols.length - 1];
+        System.arraycopy(this.symbols, 0, remaining, 0, index);
+        System.arraycopy(this.symbols, index + 1, remaining, index, remaining.length - index);
+        this.symbols = remaining;
+        this.label = null;
     }
 
     public boolean hasNoSymbols() {
-        return this.symbol == null || this.symbol.trim().isEmpty();
+        return this.symbols.length == 0;
     }
-}
\ No newline at end of file
+}
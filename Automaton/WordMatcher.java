@@ -0,0 +1,11 @@
+package Automaton;
+
+import java.util.BitSet;
+
+public interface WordMatcher {
+    boolean matches(CharSequence input);
+
+    default BitSet matchingPatterns(CharSequence input) {
+        return new BitSet();
+    }
+}
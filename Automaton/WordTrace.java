@@ -0,0 +1,118 @@
+package Automaton;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The active states of a run, recorded in one pass: step 0 is the ε-closure of the initial
+// state and step i the ε-closed set after the i-th character. Each step is a bitset of
+// `words` longs in one flat array, so any step can be read back without re-running the input.
+// Steps after the run dies are empty and not stored.
+public final class WordTrace {
+    private final Automaton automaton;
+    private final int modCount;
+    private final State[] states;
+    private final int words;
+    private final String input;
+    private final long[] masks;
+    private final int stored;
+    private final boolean accepted;
+    private Map<State, Integer> index;
+
+    WordTrace(Automaton automaton, State[] states, int words, String input, long[] masks, int stored, boolean accepted) {
+        this.automaton = automaton;
+        this.modCount = automaton.getModCount();
+        this.states = states;
+        this.words = words;
+        this.input = input;
+        this.masks = masks;
+        this.stored = stored;
+        this.accepted = accepted;
+    }
+
+    public String getInput() {
+        return this.input;
+    }
+
+    public int getStepCount() {
+        return this.input.length() + 1;
+    }
+
+    // The last step with an active state; the run died on the character after it.
+    public int getLastLiveStep() {
+        return this.stored - 1;
+    }
+
+    public boolean isAccepted() {
+        return this.accepted;
+    }
+
+    // False once the automaton has been edited, after which states and edges may no longer match.
+    public boolean isCurrent() {
+        return this.automaton.getModCount() == this.modCount;
+    }
+
+    public List<State> getActiveStates(int step) {
+        List<State> active = new ArrayList<>();
+        if (step < 0 || step >= this.stored) {
+            return active;
+        }
+        int base = step * this.words;
+        for (int w = 0; w < this.words; w++) {
+            long bits = this.masks[base + w];
+            while (bits != 0) {
+                active.add(this.states[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+        return active;
+    }
+
+    // The translations that lead into the given step: those reading the step's character from a
+    // state active before it, then the ε-translations between states active at the step.
+    public List<Translation> getTakenTranslations(int step) {
+        List<Translation> taken = new ArrayList<>();
+        if (step < 0 || step >= this.stored) {
+            return taken;
+        }
+        List<State> active = getActiveStates(step);
+        if (step > 0) {
+            int symbol = this.automaton.getSymbolTable().idOf(this.input.charAt(step - 1));
+            for (State s : getActiveStates(step - 1)) {
+                for (Translation t : this.automaton.getOutgoingTranslations(s)) {
+                    if (t.hasSymbol(symbol) && isActive(step, t.getToState())) {
+                        taken.add(t);
+                    }
+                }
+            }
+        }
+        for (State s : active) {
+            for (Translation t : this.automaton.getOutgoingTranslations(s)) {
+                if (t.hasEpsilon() && isActive(step, t.getToState())) {
+                    taken.add(t);
+                }
+            }
+        }
+        return taken;
+    }
+
+    public boolean isActive(int step, State state) {
+        if (step < 0 || step >= this.stored) {
+            return false;
+        }
+        int i = indexOf(state);
+        return i >= 0 && (this.masks[step * this.words + (i >>> 6)] & (1L << i)) != 0;
+    }
+
+    private int indexOf(State state) {
+        if (this.index == null) {
+            this.index = new IdentityHashMap<>();
+            for (int i = 0; i < this.states.length; i++) {
+                this.index.put(this.states[i], i);
+            }
+        }
+        Integer i = this.index.get(state);
+        return i == null ? -1 : i;
+    }
+}
@@ -0,0 +1,27 @@
+package Regex;
+
+import java.util.List;
+
+public sealed interface Node {
+
+    record Empty() implements Node {
+    }
+
+    record Symbols(String chars) implements Node {
+    }
+
+    record Concat(List<Node> items) implements Node {
+    }
+
+    record Alternation(List<Node> items) implements Node {
+    }
+
+    record Star(Node child) implements Node {
+    }
+
+    record Plus(Node child) implements Node {
+    }
+
+    record Optional(Node child) implements Node {
+    }
+}
@@ -1,66 +1,257 @@
 package Regex;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
 
 public class Parser {
+    // Counted repetitions copy their operand, so nesting multiplies: a{1000}{1000} is a million
+    // symbol positions for Glushkov and Thompson. The whole expansion is capped, not just each count.
+    private static final long MAX_POSITIONS = 200000;
 
-    public static boolean isSymbol(char c) {
-        return c != '(' && c != ')' && c != '*' && c != '|' && c != '.' && c != '+' && c != '?';
+    private final String regex;
+    private int pos;
+    private final Map<Node, Long> positions = new IdentityHashMap<>();
+
+    private Parser(String regex) {
+        this.regex = regex;
+        this.pos = 0;
     }
 
-    private static int priority(char c) {
-        return switch (c) {
-            case '*', '+', '?' -> 3;
-            case '.' -> 2;
-            case '|' -> 1;
-            default -> 0;
-        };
+    public static Node parse(String regex) {
+        Parser p = new Parser(regex);
+        Node node = p.alternation();
+        if (p.pos < regex.length()) {
+            throw p.error("Unmatched ')'", p.pos);
+        }
+        if (p.positions(node) > MAX_POSITIONS) {
+            throw p.error("Pattern expands to too many positions", 0);
+        }
+        return node;
     }
 
-    public static String addConcat(String r) {
-        StringBuilder out = new StringBuilder();
-        for (int i = 0; i < r.length(); i++) {
-            char c1 = r.charAt(i);
-            out.append(c1);
-            if (i + 1 < r.length()) {
-                char c2 = r.charAt(i + 1);
-                if ((isSymbol(c1) || c1 == '*' || c1 == '+' || c1 == '?' || c1 == ')') && (isSymbol(c2) || c2 == '(')) {
-                    out.append('.');
-                }
+    private Node alternation() {
+        List<Node> items = new ArrayList<>();
+        items.add(concatenation());
+        while (peek() == '|') {
+            pos++;
+            items.add(concatenation());
+        }
+        return items.size() == 1 ? items.get(0) : new Node.Alternation(List.copyOf(items));
+    }
+
+    private Node concatenation() {
+        List<Node> items = new ArrayList<>();
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            if (c == '|' || c == ')') {
+                break;
+            }
+            if (c == '.') {
+                pos++;
+                continue;
+            }
+            Node item = repetition(atom());
+            if (item instanceof Node.Concat concat) {
+                items.addAll(concat.items());
+            } else if (!(item instanceof Node.Empty)) {
+                items.add(item);
+            }
+        }
+        if (items.isEmpty()) {
+            return new Node.Empty();
+        }
+        return items.size() == 1 ? items.get(0) : new Node.Concat(List.copyOf(items));
+    }
+
+    private Node repetition(Node atom) {
+        Node node = atom;
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            if (c == '*') {
+                node = new Node.Star(node);
+            } else if (c == '+') {
+                node = new Node.Plus(node);
+            } else if (c == '?') {
+                node = new Node.Optional(node);
+            } else if (c == '{') {
+                node = counted(node);
+                continue;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        return node;
+    }
+
+    private Node counted(Node child) {
+        int open = pos++;
+        int min = number(open);
+        int max = min;
+        if (peek() == ',') {
+            pos++;
+            max = peek() == '}' ? -1 : number(open);
+        }
+        if (peek() != '}') {
+            throw error("Unclosed counted repetition", open);
+        }
+        pos++;
+        if (max >= 0 && max < min) {
+            throw error("Illegal repetition range", open);
+        }
+
+        List<Node> items = new ArrayList<>();
+        for (int i = 0; i < min; i++) {
+            items.add(child);
+        }
+        if (max < 0) {
+            items.add(new Node.Star(child));
+        } else if (max > min) {
+            Node optional = new Node.Optional(child);
+            for (int i = min; i < max; i++) {
+                items.add(optional);
             }
         }
-        return out.toString();
+        if (items.isEmpty()) {
+            return new Node.Empty();
+        }
+        Node node = items.size() == 1 ? items.get(0) : new Node.Concat(List.copyOf(items));
+        if (positions(node) > MAX_POSITIONS) {
+            throw error("Counted repetition expands to too many positions", open);
+        }
+        return node;
     }
 
-    public static String shuntingYard(String regex) {
-        String r = addConcat(regex);
-        StringBuilder output = new StringBuilder();
-        Stack<Character> stack = new Stack<>();
-
-        for (char c : r.toCharArray()) {
-            if (isSymbol(c)) {
-                output.append(c);
-            } else if (c == '(') {
-                stack.push(c);
-            } else if (c == ')') {
-                while (!stack.isEmpty() && stack.peek() != '(') {
-                    output.append(stack.pop());
+    // Symbol positions once repeated operands are expanded, saturating just above the cap. Shared
+    // operands are counted once per occurrence but computed once, so this stays linear in the AST.
+    private long positions(Node node) {
+        Long known = this.positions.get(node);
+        if (known != null) {
+            return known;
+        }
+        long total;
+        if (node instanceof Node.Symbols) {
+            total = 1;
+        } else if (node instanceof Node.Concat concat) {
+            total = sum(concat.items());
+        } else if (node instanceof Node.Alternation alt) {
+            total = sum(alt.items());
+        } else if (node instanceof Node.Star star) {
+            total = positions(star.child());
+        } else if (node instanceof Node.Plus plus) {
+            total = 2 * positions(plus.child());
+        } else if (node instanceof Node.Optional opt) {
+            total = positions(opt.child());
+        } else {
+            total = 0;
+        }
+        total = Math.min(total, MAX_POSITIONS + 1);
+        this.positions.put(node, total);
+        return total;
+    }
+
+    private long sum(List<Node> items) {
+        long total = 0;
+        for (Node item : items) {
+            total = Math.min(total + positions(item), MAX_POSITIONS + 1);
+        }
+        return total;
+    }
+
+    private int number(int open) {
+        int start = pos;
+        int value = 0;
+        while (pos < regex.length() && Character.isDigit(regex.charAt(pos))) {
+            value = value * 10 + (regex.charAt(pos) - '0');
+            if (value > 100000) {
+                throw error("Repetition count too large", start);
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw error("Expected a number in counted repetition", open);
+        }
+        return value;
+    }
+
+    private Node atom() {
+        int start = pos;
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case '(' -> {
+                Node inner = alternation();
+                if (peek() != ')') {
+                    throw error("Unclosed group", start);
                 }
-                if (!stack.isEmpty()) {
-                    stack.pop();
+                pos++;
+                return inner;
+            }
+            case '[' -> {
+                return characterClass(start);
+            }
+            case '\\' -> {
+                return new Node.Symbols(String.valueOf(escaped(start)));
+            }
+            case '*', '+', '?', '{' -> throw error("Dangling meta character '" + c + "'", start);
+            default -> {
+                return new Node.Symbols(String.valueOf(c));
+            }
+        }
+    }
+
+    private Node characterClass(int open) {
+        if (peek() == '^') {
+            throw error("Negated character classes are not supported", pos);
+        }
+        BitSet chars = new BitSet();
+        boolean first = true;
+        while (true) {
+            if (pos >= regex.length()) {
+                throw error("Unclosed character class", open);
+            }
+            char c = regex.charAt(pos);
+            if (c == ']' && !first) {
+                pos++;
+                break;
+            }
+            first = false;
+            int at = pos++;
+            char low = c == '\\' ? escaped(at) : c;
+            if (peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                pos++;
+                int highAt = pos++;
+                char high = regex.charAt(highAt) == '\\' ? escaped(highAt) : regex.charAt(highAt);
+                if (high < low) {
+                    throw error("Illegal character range", at);
                 }
+                chars.set(low, high + 1);
             } else {
-                while (!stack.isEmpty() && priority(stack.peek()) >= priority(c)) {
-                    output.append(stack.pop());
-                }
-                stack.push(c);
+                chars.set(low);
             }
         }
+        StringBuilder out = new StringBuilder(chars.cardinality());
+        for (int ch = chars.nextSetBit(0); ch >= 0; ch = chars.nextSetBit(ch + 1)) {
+            out.append((char) ch);
+        }
+        return new Node.Symbols(out.toString());
+    }
 
-        while (!stack.isEmpty()) {
-            output.append(stack.pop());
+    private char escaped(int at) {
+        if (pos >= regex.length()) {
+            throw error("Unexpected end after '\\'", at);
         }
-        
-        return output.toString();
+        return regex.charAt(pos++);
+    }
+
+    private char peek() {
+        return pos < regex.length() ? regex.charAt(pos) : '\0';
+    }
+
+    private PatternSyntaxException error(String description, int index) {
+        return new PatternSyntaxException(description, regex, index);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package Thompson;
+
+import Automaton.*;
+import Regex.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+public class Glushkov {
+    private final List<String> symbols = new ArrayList<>();
+    private final List<BitSet> follow = new ArrayList<>();
+
+    private static class Info {
+        private final boolean nullable;
+        private final BitSet first;
+        private final BitSet last;
+
+        Info(boolean nullable, BitSet first, BitSet last) {
+            this.nullable = nullable;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    public static Automaton build(Node regex) {
+        return build(List.of(regex), false);
+    }
+
+    // Accepting states carry the ids (list indices) of the patterns they complete.
+    public static Automaton build(List<Node> patterns) {
+        return build(patterns, true);
+    }
+
+    private static Automaton build(List<Node> patterns, boolean tagged) {
+        Glushkov builder = new Glushkov();
+        List<Info> infos = new ArrayList<>(patterns.size());
+        BitSet first = new BitSet();
+        for (Node pattern : patterns) {
+            Info r = builder.visit(pattern);
+            infos.add(r);
+            first.or(r.first);
+        }
+
+        Automaton a = new Automaton();
+        State start = new State("q0", false, false, 0, 0);
+        a.addState(start);
+        List<State> positions = new ArrayList<>(builder.symbols.size());
+        for (int p = 0; p < builder.symbols.size(); p++) {
+            State s = new State("q" + (p + 1), false, false, 0, 0);
+            positions.add(s);
+            a.addState(s);
+        }
+
+        int[][] labels = new int[builder.symbols.size()][];
+        for (int p = 0; p < labels.length; p++) {
+            labels[p] = a.getSymbolTable().internAll(builder.symbols.get(p));
+        }
+        for (int p = first.nextSetBit(0); p >= 0; p = first.nextSetBit(p + 1)) {
+            a.addTranslation(start, positions.get(p), labels[p]);
+        }
+        for (int x = 0; x < labels.length; x++) {
+            BitSet targets = builder.follow.get(x);
+            for (int y = targets.nextSetBit(0); y >= 0; y = targets.nextSetBit(y + 1)) {
+                a.addTranslation(positions.get(x), positions.get(y), labels[y]);
+            }
+        }
+
+        a.setInitial(start, true);
+        for (int i = 0; i < infos.size(); i++) {
+            Info r = infos.get(i);
+            BitSet id = new BitSet();
+            if (tagged) {
+                id.set(i);
+            }
+            if (r.nullable) {
+                accept(a, start, id);
+            }
+            for (int p = r.last.nextSetBit(0); p >= 0; p = r.last.nextSetBit(p + 1)) {
+                accept(a, positions.get(p), id);
+            }
+        }
+        return a;
+    }
+
+    private static void accept(Automaton a, State s, BitSet id) {
+        a.setAccepting(s, true);
+        if (!id.isEmpty()) {
+            BitSet patterns = s.getPatterns();
+            patterns.or(id);
+            a.setPatterns(s, patterns);
+        }
+    }
+
+    private Info visit(Node node) {
+        if (node instanceof Node.Symbols s) {
+            int position = symbols.size();
+            symbols.add(s.chars());
+            follow.add(new BitSet());
+            BitSet single = new BitSet();
+            single.set(position);
+            return new Info(false, single, (BitSet) single.clone());
+        } else if (node instanceof Node.Concat concat) {
+            Info r = null;
+            for (Node item : concat.items()) {
+                Info b = visit(item);
+                if (r == null) {
+                    r = b;
+                    continue;
+                }
+                for (int x = r.last.nextSetBit(0); x >= 0; x = r.last.nextSetBit(x + 1)) {
+                    follow.get(x).or(b.first);
+                }
+                BitSet first = r.first;
+                if (r.nullable) {
+                    first.or(b.first);
+                }
+                BitSet last = b.last;
+                if (b.nullable) {
+                    last.or(r.last);
+                }
+                r = new Info(r.nullable && b.nullable, first, last);
+            }
+            return r;
+        } else if (node instanceof Node.Alternation alternation) {
+            boolean nullable = false;
+            BitSet first = new BitSet();
+            BitSet last = new BitSet();
+            for (Node item : alternation.items()) {
+                Info b = visit(item);
+                nullable |= b.nullable;
+                first.or(b.first);
+                last.or(b.last);
+            }
+            return new Info(nullable, first, last);
+        } else if (node instanceof Node.Star || node instanceof Node.Plus) {
+            Node child = node instanceof Node.Star star ? star.child() : ((Node.Plus) node).child();
+            Info a1 = visit(child);
+            for (int x = a1.last.nextSetBit(0); x >= 0; x = a1.last.nextSetBit(x + 1)) {
+                follow.get(x).or(a1.first);
+            }
+            return new Info(node instanceof Node.Star || a1.nullable, a1.first, a1.last);
+        } else if (node instanceof Node.Optional optional) {
+            Info a1 = visit(optional.child());
+            return new Info(true, a1.first, a1.last);
+        }
+        return new Info(true, new BitSet(), new BitSet());
+    }
+}
@@ -3,78 +3,80 @@ package Thompson;
 import Automaton.*;
 import Regex.*;
 
-import java.util.Stack;
-
 public class Thompson {
+    private final Automaton a = new Automaton();
+    private int stateCounter = 0;
+
+    public static Automaton build(Node regex) {
+        Thompson builder = new Thompson();
+        Fragment r = builder.fragment(regex);
+        builder.a.setInitial(r.getStart(), true);
+        builder.a.setAccepting(r.getEnd(), true);
+        return builder.a;
+    }
 
-    public static Automaton build(String postfix) {
-        Stack<Fragment> stack = new Stack<>();
-        Automaton a = new Automaton();
-        int stateCounter = 0;
+    private State newState() {
+        State s = new State("q" + (stateCounter++), false, false, 0, 0);
+        a.addState(s);
+        return s;
+    }
 
-        for (char c : postfix.toCharArray()) {
-            if (Parser.isSymbol(c)) {
-                State from = new State("q" + (stateCounter++), false, false, 0, 0);
-                State to = new State("q" + (stateCounter++), false, false, 0, 0);
-                a.addState(from);
-                a.addState(to);
-                a.addTranslation(from, to, String.valueOf(c));
-                stack.push(new Fragment(from, to));
-            } else if (c == '.') {
-                Fragment b = stack.pop();
-                Fragment a1 = stack.pop();
-                a.addTranslation(a1.getEnd(), b.getStart(), "eps");
-                stack.push(new Fragment(a1.getStart(), b.getEnd()));
-            } else if ( c == '|') {
-                Fragment b = stack.pop();
-                Fragment a1 = stack.pop();
-                State from = new State("q" + (stateCounter++), false, false, 0, 0);
-                State to = new State("q" + (stateCounter++), false, false, 0, 0);
-                a.addState(from);
-                a.addState(to);
-                a.addTranslation(from, a1.getStart(), "eps");
-                a.addTranslation(from, b.getStart(), "eps");
-                a.addTranslation(a1.getEnd(), to, "eps");
-                a.addTranslation(b.getEnd(), to, "eps");
-                stack.push(new Fragment(from, to));
-            } else if (c == '*') {
-                Fragment a1 = stack.pop();
-                State from = new State("q" + (stateCounter++), false, false, 0, 0);
-                State to = new State("q" + (stateCounter++), false, false, 0, 0);
-                a.addState(from);
-                a.addState(to);
-                a.addTranslation(from, a1.getStart(), "eps");
-                a.addTranslation(from, to, "eps");
-                a.addTranslation(a1.getEnd(), a1.getStart(), "eps");
-                a.addTranslation(a1.getEnd(), to, "eps");
-                stack.push(new Fragment(from, to));
-            } else if (c == '+') {
-                Fragment a1 = stack.pop();
-                State from = new State("q" + (stateCounter++), false, false, 0, 0);
-                State to = new State("q" + (stateCounter++), false, false, 0, 0);
-                a.addState(from);
-                a.addState(to);
-                a.addTranslation(from, a1.getStart(), "eps");
-                a.addTranslation(a1.getEnd(), a1.getStart(), "eps");
-                a.addTranslation(a1.getEnd(), to, "eps");
-                stack.push(new Fragment(from, to));
-            } else if (c== '?') {
-                Fragment a1 = stack.pop();
-                State from = new State("q" + (stateCounter++), false, false, 0, 0);
-                State to = new State("q" + (stateCounter++), false, false, 0, 0);
-                a.addState(from);
-                a.addState(to);
-                a.addTranslation(from, a1.getStart(), "eps");
-                a.addTranslation(a1.getEnd(), to, "eps");
-                a.addTranslation(from, to, "eps");
-                stack.push(new Fragment(from, to));
+    private Fragment fragment(Node node) {
+        if (node instanceof Node.Symbols symbols) {
+            State from = newState();
+            State to = newState();
+            a.addTranslation(from, to, a.getSymbolTable().internAll(symbols.chars()));
+            return new Fragment(from, to);
+        } else if (node instanceof Node.Concat concat) {
+            Fragment r = null;
+            for (Node item : concat.items()) {
+                Fragment next = fragment(item);
+                if (r == null) {
+                    r = next;
+                } else {
+                    a.addTranslation(r.getEnd(), next.getStart(), "eps");
+                    r = new Fragment(r.getStart(), next.getEnd());
+                }
             }
+            return r;
+        } else if (node instanceof Node.Alternation alternation) {
+            State from = newState();
+            State to = newState();
+            for (Node item : alternation.items()) {
+                Fragment branch = fragment(item);
+                a.addTranslation(from, branch.getStart(), "eps");
+                a.addTranslation(branch.getEnd(), to, "eps");
+            }
+            return new Fragment(from, to);
+        } else if (node instanceof Node.Star star) {
+            Fragment a1 = fragment(star.child());
+            State from = newState();
+            State to = newState();
+            a.addTranslation(from, a1.getStart(), "eps");
+            a.addTranslation(from, to, "eps");
+            a.addTranslation(a1.getEnd(), a1.getStart(), "eps");
+            a.addTranslation(a1.getEnd(), to, "eps");
+            return new Fragment(from, to);
+        } else if (node instanceof Node.Plus plus) {
+            Fragment a1 = fragment(plus.child());
+            State from = newState();
+            State to = newState();
+            a.addTranslation(from, a1.getStart(), "eps");
+            a.addTranslation(a1.getEnd(), a1.getStart(), "eps");
+            a.addTranslation(a1.getEnd(), to, "eps");
+            return new Fragment(from, to);
+        } else if (node instanceof Node.Optional optional) {
+            Fragment a1 = fragment(optional.child());
+            State from = newState();
+            State to = newState();
+            a.addTranslation(from, a1.getStart(), "eps");
+            a.addTranslation(a1.getEnd(), to, "eps");
+            a.addTranslation(from, to, "eps");
+            return new Fragment(from, to);
         }
-        if (!stack.isEmpty()) {
-            Fragment r = stack.pop();
-            r.getStart().setInitial(true);
-            r.getEnd().setAccepting(true);
-        }
-        return a;
+        State from = newState();
+        State to = newState();
+        a.addTranslation(from, to, "eps");
+        return new Fragment(from, to);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package Benchmarks;
+
+import Automaton.Automaton;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// The algorithms mutate the automaton in place, so each invocation works on fresh copies made
+// outside the measured region.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgorithmBenchmark {
+    @Param({ "blowup:8", "blowup:14", "alternation:64", "alternation:1024", "random:16", "random:64" })
+    public String input;
+
+    private Automaton nfa;
+    private Automaton withoutEpsilon;
+    private Automaton dfa;
+
+    private Automaton nfaCopy;
+    private Automaton withoutEpsilonCopy;
+    private Automaton dfaCopy;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.nfa = Generators.family(this.input);
+        this.withoutEpsilon = this.nfa.copy();
+        this.withoutEpsilon.removeEpsilonTransitions();
+        this.dfa = this.withoutEpsilon.copy();
+        this.dfa.determinize();
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        this.nfaCopy = this.nfa.copy();
+        this.withoutEpsilonCopy = this.withoutEpsilon.copy();
+        this.dfaCopy = this.dfa.copy();
+    }
+
+    @Benchmark
+    public Automaton removeEpsilonTransitions() {
+        this.nfaCopy.removeEpsilonTransitions();
+        return this.nfaCopy;
+    }
+
+    @Benchmark
+    public Automaton determinize() {
+        this.withoutEpsilonCopy.determinize();
+        return this.withoutEpsilonCopy;
+    }
+
+    @Benchmark
+    public Automaton minimize() {
+        this.dfaCopy.minimize();
+        return this.dfaCopy;
+    }
+}
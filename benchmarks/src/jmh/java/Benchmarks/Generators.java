@@ -0,0 +1,107 @@
+package Benchmarks;
+
+import Automaton.*;
+import Regex.*;
+import Thompson.*;
+
+import java.util.Random;
+
+// Deterministic (seeded) inputs shared by the benchmarks.
+final class Generators {
+    private Generators() {
+    }
+
+    // (a|b)*a(a|b)^n: the classic family whose minimal DFA has 2^(n+1) states.
+    static String blowUpRegex(int n) {
+        StringBuilder sb = new StringBuilder("(a|b)*a");
+        for (int i = 0; i < n; i++) {
+            sb.append("(a|b)");
+        }
+        return sb.toString();
+    }
+
+    // An alternation of `count` random lowercase words of 3 to 10 letters.
+    static String alternationRegex(int count, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append('|');
+            }
+            int length = 3 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+
+    // A random NFA over {a, b, c}: each state gets `degree` labelled edges and, with probability
+    // 1/4, an ε-edge to a random state.
+    static Automaton randomNfa(int n, int degree, long seed) {
+        Random random = new Random(seed);
+        Automaton a = new Automaton();
+        State[] states = new State[n];
+        for (int i = 0; i < n; i++) {
+            states[i] = new State("q" + i, i == 0, random.nextInt(8) == 0, 0, 0);
+            a.addState(states[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            for (int d = 0; d < degree; d++) {
+                String symbol = String.valueOf((char) ('a' + random.nextInt(3)));
+                a.addTranslation(states[i], states[random.nextInt(n)], symbol);
+            }
+            if (random.nextInt(4) == 0) {
+                a.addTranslation(states[i], states[random.nextInt(n)], "ε");
+            }
+        }
+        return a;
+    }
+
+    // An input is written "family:size", e.g. "blowup:12".
+    static Automaton family(String input) {
+        String family = familyOf(input);
+        int size = sizeOf(input);
+        switch (family) {
+            case "blowup":
+                return Thompson.build(Parser.parse(blowUpRegex(size)));
+            case "alternation":
+                return Thompson.build(Parser.parse(alternationRegex(size, 42)));
+            case "random":
+                return randomNfa(size, 2, 42);
+            default:
+                throw new IllegalArgumentException("Unknown family: " + family);
+        }
+    }
+
+    // Words over the family's alphabet, roughly half of which are accepted for the
+    // blow-up and alternation families.
+    static String[] words(String input, int count, int length) {
+        String family = familyOf(input);
+        int size = sizeOf(input);
+        Random random = new Random(7);
+        String[] alternatives = family.equals("alternation") ? alternationRegex(size, 42).split("\\|") : null;
+        String letters = family.equals("random") ? "abc" : "ab";
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (alternatives != null && random.nextBoolean()) {
+                words[i] = alternatives[random.nextInt(alternatives.length)];
+                continue;
+            }
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                sb.append(letters.charAt(random.nextInt(letters.length())));
+            }
+            words[i] = sb.toString();
+        }
+        return words;
+    }
+
+    static String familyOf(String input) {
+        return input.substring(0, input.indexOf(':'));
+    }
+
+    static int sizeOf(String input) {
+        return Integer.parseInt(input.substring(input.indexOf(':') + 1));
+    }
+}
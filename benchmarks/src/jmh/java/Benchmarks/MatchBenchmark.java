@@ -0,0 +1,55 @@
+package Benchmarks;
+
+import Automaton.Automaton;
+import Automaton.MatchEngine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Throughput of Automaton.accepts, once per matching engine. The NFA engines run on the ε-free
+// NFA; COMPILED_DFA only accepts deterministic automata, so it runs on the determinized one,
+// which recognises the same language.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+    private static final int WORDS = 1024;
+
+    @Param({ "blowup:8", "blowup:14", "alternation:64", "alternation:1024", "random:64" })
+    public String input;
+
+    @Param({ "COMPILED_DFA", "BIT_PARALLEL_NFA", "LAZY_DFA" })
+    public MatchEngine engine;
+
+    @Param({ "32" })
+    public int length;
+
+    private Automaton automaton;
+    private String[] words;
+
+    @Setup
+    public void setup() {
+        this.automaton = Generators.family(this.input);
+        this.automaton.removeEpsilonTransitions();
+        if (this.engine == MatchEngine.COMPILED_DFA) {
+            this.automaton.determinize();
+        }
+        this.automaton.setEngine(this.engine);
+        this.words = Generators.words(this.input, WORDS, this.length);
+        // Build the matcher before measuring.
+        this.automaton.accepts(this.words[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void accepts(Blackhole blackhole) {
+        for (String word : this.words) {
+            blackhole.consume(this.automaton.accepts(word));
+        }
+    }
+}
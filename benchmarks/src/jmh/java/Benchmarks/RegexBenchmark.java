@@ -0,0 +1,47 @@
+package Benchmarks;
+
+import Automaton.Automaton;
+import Regex.*;
+import Thompson.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexBenchmark {
+    @Param({ "blowup", "alternation" })
+    public String family;
+
+    @Param({ "8", "64", "512" })
+    public int size;
+
+    private String regex;
+    private Node tree;
+
+    @Setup
+    public void setup() {
+        this.regex = this.family.equals("blowup") ? Generators.blowUpRegex(this.size) : Generators.alternationRegex(this.size, 42);
+        this.tree = Parser.parse(this.regex);
+    }
+
+    @Benchmark
+    public Node parse() {
+        return Parser.parse(this.regex);
+    }
+
+    @Benchmark
+    public Automaton thompson() {
+        return Thompson.build(this.tree);
+    }
+
+    @Benchmark
+    public Automaton glushkov() {
+        return Glushkov.build(this.tree);
+    }
+}
@@ -18,7 +18,7 @@ if (!(Test-Path bin)) {
 
 # 3️⃣ Compile tous les fichiers Java
 Write-Host "Compiling Java files..."
-Get-ChildItem -Recurse -Filter *.java | ForEach-Object { 
+Get-ChildItem -Recurse -Filter *.java | Where-Object { $_.FullName -notlike "*benchmarks*" } | ForEach-Object { 
     javac -d bin $_.FullName
 }
 